@@ -1,18 +1,24 @@
 package com.springvuegradle.team6.controllers;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.springvuegradle.team6.models.*;
-import com.springvuegradle.team6.models.location.NamedLocation;
 import com.springvuegradle.team6.models.location.NamedLocationRepository;
 import com.springvuegradle.team6.requests.*;
 import com.springvuegradle.team6.security.UserSecurityService;
+import com.springvuegradle.team6.services.ActivityAccessUpdater;
+import com.springvuegradle.team6.services.ActivityChange;
+import com.springvuegradle.team6.services.ActivityChangeDetector;
+import com.springvuegradle.team6.services.ActivityJsonCache;
+import com.springvuegradle.team6.services.TagResolver;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.DataBinder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpSession;
 import javax.validation.Valid;
@@ -44,7 +50,9 @@ public class ActivityController {
   private final ActivityRepository activityRepository;
   private final ActivityRoleRepository activityRoleRepository;
   private final NamedLocationRepository locationRepository;
-  private final TagRepository tagRepository;
+  private final TagResolver tagResolver;
+  private final ActivityAccessUpdater activityAccessUpdater;
+  private final ActivityJsonCache activityJsonCache;
   private final SubscriptionHistoryRepository subscriptionHistoryRepository;
   private final ActivityHistoryRepository activityHistoryRepository;
 
@@ -53,14 +61,18 @@ public class ActivityController {
       ActivityRepository activityRepository,
       ActivityRoleRepository activityRoleRepository,
       NamedLocationRepository locationRepository,
-      TagRepository tagRepository,
+      TagResolver tagResolver,
+      ActivityAccessUpdater activityAccessUpdater,
+      ActivityJsonCache activityJsonCache,
       SubscriptionHistoryRepository subscriptionHistoryRepository,
       ActivityHistoryRepository activityHistoryRepository) {
     this.profileRepository = profileRepository;
     this.activityRepository = activityRepository;
     this.activityRoleRepository = activityRoleRepository;
     this.locationRepository = locationRepository;
-    this.tagRepository = tagRepository;
+    this.tagResolver = tagResolver;
+    this.activityAccessUpdater = activityAccessUpdater;
+    this.activityJsonCache = activityJsonCache;
     this.subscriptionHistoryRepository = subscriptionHistoryRepository;
     this.activityHistoryRepository = activityHistoryRepository;
   }
@@ -361,20 +373,11 @@ public class ActivityController {
         return checkHashtagsValidityResponse;
       }
 
-      Set<Tag> hashtags = new HashSet<>();
       if (request.getHashtags() != null) {
-        for (Tag tag : request.getHashtags()) {
-          Tag dbTag = tagRepository.findByName(tag.getName());
-          if (dbTag == null) {
-            tag = tagRepository.save(tag);
-            hashtags.add(tag);
-          } else {
-            hashtags.add(dbTag);
-          }
-        }
-        activity.setTags(hashtags);
+        activity.setTags(tagResolver.resolve(request.getHashtags()));
       }
       activityRepository.save(activity);
+      activityJsonCache.invalidate(activity.getId());
 
       return ResponseEntity.ok("Hashtags of Activity '" + activity.getActivityName() + "' were updated.");
     } else {
@@ -414,36 +417,25 @@ public class ActivityController {
     }
 
     Activity activity = new Activity(request, profile);
-    if (activity.getLocation() != null) {
-      Optional<NamedLocation> optionalNamedLocation =
-          locationRepository.findByCountryAndStateAndCity(
-              activity.getLocation().getCountry(),
-              activity.getLocation().getState(),
-              activity.getLocation().getCity());
-      if (optionalNamedLocation.isPresent()) {
-        activity.setLocation(optionalNamedLocation.get());
-      } else {
-        locationRepository.save(activity.getLocation());
-      }
+    if (request.location != null) {
+      activity.setLocation(
+          locationRepository.findOrSave(
+              request.location.country,
+              request.location.state,
+              request.location.city,
+              request.location.latitude,
+              request.location.longitude));
     }
     ResponseEntity<String> checkActivityDateTimeResponse = checkCreateActivityDateTime(activity);
     if (checkActivityDateTimeResponse != null) {
       return checkActivityDateTimeResponse;
     }
 
-    Set<Tag> hashtags = new HashSet<>();
     if (activity.getTags() != null) {
-      for (Tag tag : activity.getTags()) {
-        Tag dbTag = tagRepository.findByName(tag.getName());
-        if (dbTag == null) {
-          tag = tagRepository.save(tag);
-          hashtags.add(tag);
-        } else {
-          hashtags.add(dbTag);
-        }
-      }
+      activity.setTags(tagResolver.resolve(activity.getTags()));
+    } else {
+      activity.setTags(new HashSet<>());
     }
-    activity.setTags(hashtags);
 
     // Set creation date to now
     activity.setCreationDate(LocalDateTime.now());
@@ -463,7 +455,7 @@ public class ActivityController {
     creator.setActivityRoleType(ActivityRoleType.Creator);
     activityRoleRepository.save(creator);
 
-    ResponseEntity<String> editActivityRolesResponse = editActivityRoles(request.emails, activity, activity.getId());
+    ResponseEntity<String> editActivityRolesResponse = editActivityRoles(request.emails, activity);
     if (editActivityRolesResponse != null) {
       return editActivityRolesResponse;
     }
@@ -497,38 +489,17 @@ public class ActivityController {
     }
 
     if (request.location != null) {
-      NamedLocation location =
-              new NamedLocation(
-                      request.location.country, request.location.state, request.location.city);
-      activity.setLocation(location);
-
-      if (activity.getLocation() != null) {
-        Optional<NamedLocation> optionalNamedLocation =
-                locationRepository.findByCountryAndStateAndCity(
-                        activity.getLocation().getCountry(),
-                        activity.getLocation().getState(),
-                        activity.getLocation().getCity());
-        if (optionalNamedLocation.isPresent()) {
-          activity.setLocation(optionalNamedLocation.get());
-        } else {
-          locationRepository.save(location);
-          activity.setLocation(location);
-        }
-      }
+      activity.setLocation(
+          locationRepository.findOrSave(
+              request.location.country,
+              request.location.state,
+              request.location.city,
+              request.location.latitude,
+              request.location.longitude));
     }
 
-    Set<Tag> hashtags = new HashSet<>();
     if (request.hashTags != null) {
-      for (Tag tag : request.hashTags) {
-        Tag dbTag = tagRepository.findByName(tag.getName());
-        if (dbTag == null) {
-          tag = tagRepository.save(tag);
-          hashtags.add(tag);
-        } else {
-          hashtags.add(dbTag);
-        }
-      }
-      activity.setTags(hashtags);
+      activity.setTags(tagResolver.resolve(request.hashTags));
     }
   }
 
@@ -545,7 +516,7 @@ public class ActivityController {
           @PathVariable Integer profileId,
           @PathVariable Integer activityId,
           @Valid @RequestBody EditActivityRequest request,
-          HttpSession session) throws JsonProcessingException {
+          HttpSession session) {
 
     Optional<Activity> optionalActivity = activityRepository.findById(activityId);
 
@@ -577,22 +548,23 @@ public class ActivityController {
       }
 
 
-      ObjectMapper mapper = new ObjectMapper();
-      String preJson = mapper.writeValueAsString(activity);
+      ActivityChangeDetector changeDetector = new ActivityChangeDetector(activity);
 
       editActivityFromRequest(request, activity);
       activityRepository.save(activity);
+      activityJsonCache.invalidate(activityId);
 
-      ResponseEntity<String> editActivityRolesResponse = editActivityRoles(request.emails, activity, activityId);
+      ResponseEntity<String> editActivityRolesResponse = editActivityRoles(request.emails, activity);
       if (editActivityRolesResponse != null) {
         return editActivityRolesResponse;
       }
 
-      String postJson = mapper.writeValueAsString(activity);
-      if (!preJson.equals(postJson)) {
+      List<ActivityChange> changes = changeDetector.changesTo(activity);
+      if (!changes.isEmpty()) {
         String editorName = profileRepository.findById(Integer.parseInt(session.getAttribute("id").toString())).getFullname();
         ActivityHistory activityHistory = new ActivityHistory(activity,
-                "Activity '" + activity.getActivityName() + "' was updated by " + editorName);
+                "Activity '" + activity.getActivityName() + "' was updated by " + editorName
+                        + " (" + ActivityChangeDetector.describe(changes) + ")", true);
         activityHistoryRepository.save(activityHistory);
       }
 
@@ -628,6 +600,7 @@ public class ActivityController {
       }
       activity.setArchived(true);
       activityRepository.save(activity);
+      activityJsonCache.invalidate(activityId);
 
       String editorName = profileRepository.findById(Integer.parseInt(session.getAttribute("id").toString())).getFullname();
       String activityArchivedMessage = "Activity '" + activity.getActivityName() + "' was archived by " + editorName;
@@ -641,13 +614,18 @@ public class ActivityController {
   }
 
   /**
-   * Get activity data by ID
+   * Get activity data by ID. The JSON of the activity is served from the {@link ActivityJsonCache}
+   * once it has been rendered, after the visibility of the activity has been checked for this
+   * request. The response carries an ETag of that JSON, and a request whose If-None-Match matches
+   * it gets 304 without a body.
    *
    * @param activityId The id of the requested activity
+   * @param webRequest The request, used for its If-None-Match header
    * @return 200 response with headers
    */
   @GetMapping("/activities/{activityId}")
-  public ResponseEntity<String> getActivity(@PathVariable int activityId, HttpSession session) {
+  public ResponseEntity getActivity(
+      @PathVariable int activityId, HttpSession session, WebRequest webRequest) {
     Optional<Activity> optionalActivity = activityRepository.findById(activityId);
     if (optionalActivity.isEmpty()) {
       return new ResponseEntity<>("Activity does not exist", HttpStatus.NOT_FOUND);
@@ -669,13 +647,20 @@ public class ActivityController {
         }
       }
     }
+
+    ActivityJsonCache.RenderedActivity rendered;
     try {
-      ObjectMapper mapper = new ObjectMapper();
-      String postJson = mapper.writeValueAsString(activity);
-      return ResponseEntity.ok(postJson);
+      rendered = activityJsonCache.get(activity);
     } catch (Exception e) {
       return new ResponseEntity<>("Activity does not exist", HttpStatus.NOT_FOUND);
     }
+    if (webRequest.checkNotModified(rendered.getEtag())) {
+      return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+    }
+    return ResponseEntity.ok()
+        .eTag(rendered.getEtag())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(rendered.getJson());
   }
 
   /**
@@ -731,39 +716,17 @@ public class ActivityController {
    *
    * @param emails     list of accessor emails
    * @param activity   the activity to be edited
-   * @param activityId the activity id to be edited
    * @return a NOT FOUND response entity if accessor is not found, otherwise return null
    */
-  private ResponseEntity<String> editActivityRoles(List<String> emails, Activity activity, int activityId) {
+  private ResponseEntity<String> editActivityRoles(List<String> emails, Activity activity) {
     // Returns if list of accessor is not passed
     // or visibility type of activity is public (everyone can access) or private (no one can access)
     if (emails == null || activity.getVisibilityType() == VisibilityType.Public || activity.getVisibilityType() == VisibilityType.Private) {
       return null;
     }
-    List<ActivityRole> activityRoles = activityRoleRepository.findByActivity_Id(activityId);
-    if (activityRoles.size() > 0) {
-      for (var i = 0; i < activityRoles.size(); i++) {
-        Profile profile = activityRoles.get(i).getProfile();
-        if (!(emails.contains(profile.getPrimaryEmail().getAddress()))) {
-          activityRoleRepository.delete(activityRoles.get(i));
-        }
-      }
-    }
-    if (emails.size() > 0) {
-      for (String email : emails) {
-        Profile profile = profileRepository.findByEmails_address(email);
-        if (profile == null) {
-          return new ResponseEntity("User with email " + email + " does not exist", HttpStatus.NOT_FOUND);
-        }
-        ActivityRole role = activityRoleRepository.findByProfile_IdAndActivity_Id(profile.getId(), activityId);
-        if (role == null) {
-          ActivityRole activityRole = new ActivityRole();
-          activityRole.setActivity(activity);
-          activityRole.setProfile(profile);
-          activityRole.setActivityRoleType(ActivityRoleType.Access);
-          activityRoleRepository.save(activityRole);
-        }
-      }
+    List<String> unknown = activityAccessUpdater.replace(activity, emails);
+    if (!unknown.isEmpty()) {
+      return new ResponseEntity("User with email " + unknown.get(0) + " does not exist", HttpStatus.NOT_FOUND);
     }
     return null;
   }
@@ -798,8 +761,9 @@ public class ActivityController {
 
       activity.setVisibilityType(request.getVisibility());
       activityRepository.save(activity);
+      activityJsonCache.invalidate(activityId);
 
-      ResponseEntity<String> editActivityRolesResponse = editActivityRoles(request.getEmails(), activity, activityId);
+      ResponseEntity<String> editActivityRolesResponse = editActivityRoles(request.getEmails(), activity);
       if (editActivityRolesResponse != null) {
         return editActivityRolesResponse;
       }
@@ -809,4 +773,18 @@ public class ActivityController {
       return new ResponseEntity<>("Activity does not exist", HttpStatus.NOT_FOUND);
     }
   }
+
+  /**
+   * Activities are versioned, so an activity changed by another request between being read and
+   * saved by this one is not overwritten. The request is rejected instead, to be retried against
+   * the current activity.
+   *
+   * @param e the failure to save the activity
+   * @return 409 response with a message
+   */
+  @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+  public ResponseEntity<String> handleConcurrentEdit(ObjectOptimisticLockingFailureException e) {
+    return new ResponseEntity<>(
+        "Activity was changed by another request, please try again", HttpStatus.CONFLICT);
+  }
 }
@@ -8,6 +8,8 @@ import com.springvuegradle.team6.requests.AdminEditPasswordRequest;
 import com.springvuegradle.team6.requests.DeleteProfileRequest;
 import com.springvuegradle.team6.requests.DeleteRoleRequest;
 import com.springvuegradle.team6.requests.*;
+import com.springvuegradle.team6.services.HomeFeedCache;
+import com.springvuegradle.team6.services.SearchIndexer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -16,6 +18,7 @@ import org.springframework.web.bind.annotation.*;
 import javax.print.DocFlavor;
 import javax.transaction.Transactional;
 import javax.validation.Valid;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -30,18 +33,24 @@ public class AdminController {
     private final ProfileRepository profileRepository;
     private final EmailRepository emailRepository;
     private final RoleRepository roleRepository;
+    private final HomeFeedCache homeFeedCache;
+    private final SearchIndexer searchIndexer;
 
     /**
      * Constructor for AdminController class which gets the profile, email and role repository
      *
-     * @param profileRep the profile repository
-     * @param emailRep   the email repository
-     * @param roleRep    the role repository
+     * @param profileRep    the profile repository
+     * @param emailRep      the email repository
+     * @param roleRep       the role repository
+     * @param homeFeedCache the home feed cache
+     * @param searchIndexer the search index rebuilder
      */
-    AdminController(ProfileRepository profileRep, EmailRepository emailRep, RoleRepository roleRep) {
+    AdminController(ProfileRepository profileRep, EmailRepository emailRep, RoleRepository roleRep, HomeFeedCache homeFeedCache, SearchIndexer searchIndexer) {
         this.profileRepository = profileRep;
         this.emailRepository = emailRep;
         this.roleRepository = roleRep;
+        this.homeFeedCache = homeFeedCache;
+        this.searchIndexer = searchIndexer;
     }
 
     /**
@@ -203,4 +212,28 @@ public class AdminController {
     }
     return new ResponseEntity<>("Role added to user", HttpStatus.OK);
   }
+
+    /**
+     * Get the hit, miss, eviction and invalidation counters of the home feed cache
+     *
+     * @return response entity with the counters of the cache
+     */
+    @GetMapping("/feedcache")
+    public ResponseEntity<Map<String, Long>> getFeedCacheStats() {
+        return ResponseEntity.ok(homeFeedCache.getStats());
+    }
+
+    /**
+     * Start rebuilding the search indexes in the background. The indexes are kept up to date as
+     * profiles are written, so this is only needed to repair them.
+     *
+     * @return response entity which can be accepted(202) or conflict(409) if a rebuild is running
+     */
+    @PostMapping("/search/reindex")
+    public ResponseEntity<String> reindexSearch() {
+        if (!searchIndexer.reindex()) {
+            return new ResponseEntity<>("Search indexes are already being rebuilt", HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>("Search index rebuild started", HttpStatus.ACCEPTED);
+    }
 }
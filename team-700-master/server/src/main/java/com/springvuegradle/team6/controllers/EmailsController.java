@@ -5,6 +5,7 @@ import com.springvuegradle.team6.models.Profile;
 import com.springvuegradle.team6.models.ProfileRepository;
 import com.springvuegradle.team6.requests.EditEmailsRequest;
 import com.springvuegradle.team6.security.UserSecurityService;
+import com.springvuegradle.team6.services.SearchIndexer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -34,10 +35,13 @@ import java.util.Optional;
 public class EmailsController {
   private final ProfileRepository repository;
   private final EmailRepository emailRepository;
+  private final SearchIndexer searchIndexer;
 
-  EmailsController(ProfileRepository rep, EmailRepository emailRepository) {
+  EmailsController(
+      ProfileRepository rep, EmailRepository emailRepository, SearchIndexer searchIndexer) {
     this.repository = rep;
     this.emailRepository = emailRepository;
+    this.searchIndexer = searchIndexer;
   }
 
   /**
@@ -71,6 +75,7 @@ public class EmailsController {
         return editEmailsResponse;
       }
       repository.save(profile);
+      searchIndexer.index(Profile.class, profileId);
 
       return ResponseEntity.ok("Profile updated successfully");
     } else {
@@ -4,13 +4,25 @@ import com.springvuegradle.team6.models.*;
 import com.springvuegradle.team6.models.location.NamedLocationRepository;
 import com.springvuegradle.team6.responses.FeedResponse;
 import com.springvuegradle.team6.security.UserSecurityService;
+import com.springvuegradle.team6.services.FeedAssembler;
+import com.springvuegradle.team6.services.FeedCursor;
+import com.springvuegradle.team6.services.FeedPage;
+import com.springvuegradle.team6.services.HomeFeedBroadcaster;
+import com.springvuegradle.team6.services.HomeFeedCache;
+import com.springvuegradle.team6.services.HomeFeedStore;
 import net.minidev.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpSession;
+import java.time.Duration;
 import java.util.*;
 
 @CrossOrigin(
@@ -32,107 +44,73 @@ import java.util.*;
 @RestController
 @RequestMapping("/feed")
 public class FeedController {
+  /** The values feed.source can take */
+  private static final Set<String> FEED_SOURCES = Set.of("store", "query", "assemble");
+
   private final ProfileRepository profileRepository;
   private final ActivityRepository activityRepository;
-  private final ActivityHistoryRepository activityHistoryRepository;
-  private final SubscriptionHistoryRepository subscriptionHistoryRepository;
+  private final HomeFeedStore homeFeedStore;
+  private final FeedAssembler feedAssembler;
+  private final HomeFeedBroadcaster homeFeedBroadcaster;
+  private final HomeFeedCache homeFeedCache;
+
+  /**
+   * Where home feeds are read from: "store" reads the materialised feed store, "query" assembles
+   * the feed with a single query over the history tables and "assemble" builds it in memory from
+   * each subscription. Any other value stops the application from starting.
+   */
+  @Value("${feed.source:store}")
+  private String feedSource;
+
+  /**
+   * Seconds within which consecutive updates of the same activity are collapsed into a single feed
+   * carrying their count, 0 to return every update. Only pages read with a cursor are aggregated,
+   * so offsets keep counting single feeds.
+   */
+  @Value("${feed.aggregation.window:300}")
+  private long aggregationWindow;
 
   FeedController(
       ProfileRepository profileRepository,
       ActivityRepository activityRepository,
-      ActivityHistoryRepository activityHistoryRepository,
-      SubscriptionHistoryRepository subscriptionHistoryRepository) {
+      HomeFeedStore homeFeedStore,
+      FeedAssembler feedAssembler,
+      HomeFeedBroadcaster homeFeedBroadcaster,
+      HomeFeedCache homeFeedCache) {
     this.profileRepository = profileRepository;
-    this.activityHistoryRepository = activityHistoryRepository;
     this.activityRepository = activityRepository;
-    this.subscriptionHistoryRepository = subscriptionHistoryRepository;
+    this.homeFeedStore = homeFeedStore;
+    this.feedAssembler = feedAssembler;
+    this.homeFeedBroadcaster = homeFeedBroadcaster;
+    this.homeFeedCache = homeFeedCache;
   }
 
-  /**
-   * Extracts all the feed posts from all the subscriptions of the user
-   *
-   * @param subscriptionHistorySet The history of all the subscriptions the user has made
-   * @return the list of feeds containing information on all subscriptions and activity updates
-   *     related to the subscriptions
-   */
-  private List<FeedResponse> extractFeeds(Set<SubscriptionHistory> subscriptionHistorySet) {
-    List<FeedResponse> feeds = new ArrayList<>();
-    if (subscriptionHistorySet != null) {
-      for (SubscriptionHistory subscriptionHistory : subscriptionHistorySet) {
-        List<ActivityHistory> activityHistories =
-            activityHistoryRepository
-                .getActivityHistoryBetweenSubscribeStartEndDateTimeAndActivityId(
-                    subscriptionHistory.getActivity().getId(),
-                    subscriptionHistory.getStartDateTime(),
-                    subscriptionHistory.getEndDateTime());
-
-        if (activityHistories != null) {
-          for (ActivityHistory activityHistory : activityHistories) {
-            FeedResponse feed =
-                new FeedResponse(
-                    activityHistory.getActivity().getId(),
-                    activityHistory.getMessage(),
-                    activityHistory.getTimeDate().toString());
-            feeds.add(feed);
-          }
-        }
-
-        FeedResponse feed =
-            new FeedResponse(
-                subscriptionHistory.getActivity().getId(),
-                "Subscribed to the activity: "
-                    + subscriptionHistory.getActivity().getActivityName()
-                    + ".",
-                subscriptionHistory.getStartDateTime().toString());
-        feeds.add(feed);
-        if (subscriptionHistory.getEndDateTime() != null) {
-          FeedResponse feed1 =
-              new FeedResponse(
-                  subscriptionHistory.getActivity().getId(),
-                  "Unsubscribed to the activity: "
-                      + subscriptionHistory.getActivity().getActivityName()
-                      + ".",
-                  subscriptionHistory.getEndDateTime().toString());
-          feeds.add(feed1);
-        }
-      }
-    }
-    return feeds;
-  }
-
-  /**
-   * Extract from all the feeds a limited list of feeds which starts at the offset index and returns
-   * an amount equal to limit
-   *
-   * @param feeds all the feeds of the user
-   * @param offset the number of feeds to skip
-   * @param limit the number of feeds to return
-   * @return a limited list of feeds based on the offset and limit
-   */
-  private List<FeedResponse> extractLimitedFeeds(
-      List<FeedResponse> feeds, Integer offset, Integer limit) {
-    List<FeedResponse> limitedFeeds;
-
-    if (limit == null) {
-      limitedFeeds = feeds;
-    } else {
-      if (offset > feeds.size()) {
-        limitedFeeds = new ArrayList();
-      } else if (offset + limit > feeds.size()) {
-        limitedFeeds = feeds.subList(offset, feeds.size());
-      } else {
-        limitedFeeds = feeds.subList(offset, offset + limit);
-      }
+  /** Rejects an unknown feed.source rather than silently reading feeds some other way */
+  @PostConstruct
+  void checkFeedSource() {
+    if (!FEED_SOURCES.contains(feedSource)) {
+      throw new IllegalStateException(
+          "Unknown feed.source '" + feedSource + "', expected one of " + FEED_SOURCES);
     }
-    return limitedFeeds;
   }
 
   /**
    * Get all the feed that is to be displayed onto the user home feed. This includes all information
-   * all updates to activities that the user has subscribed.
+   * all updates to activities that the user has subscribed. Pages can either be requested with
+   * offset and limit, or with the before cursor returned as next_cursor with the previous page.
+   * Pages are cached until the feed of the profile changes. The response carries an ETag of the
+   * version of the feed, and a request whose If-None-Match matches it gets 304 without the feed
+   * being read. In pages read with a cursor, bursts of updates to the same activity are collapsed
+   * into one feed with a count and the time of the first update, see feed.aggregation.window. An
+   * empty before starts reading with a cursor from the newest feed.
    *
    * @param profileId The profile that the feed belongs to
+   * @param offset the number of feeds to skip
+   * @param limit the number of feeds to return
+   * @param before the cursor of the page to return, next_cursor of the previous page, or empty for
+   *     the first page
    * @param session The current logged in session
+   * @param webRequest The request, used for its If-None-Match header
    * @return The resulting feed information
    */
   @GetMapping("/homefeed/{profileId}")
@@ -140,7 +118,9 @@ public class FeedController {
       @PathVariable Integer profileId,
       @RequestParam(name = "offset", required = false) Integer offset,
       @RequestParam(name = "limit", required = false) Integer limit,
-      HttpSession session) {
+      @RequestParam(name = "before", required = false) String before,
+      HttpSession session,
+      WebRequest webRequest) {
 
     // Check if authorised
     ResponseEntity<String> authorisedResponse =
@@ -149,23 +129,137 @@ public class FeedController {
       return authorisedResponse;
     }
 
-    Set<SubscriptionHistory> subscriptionHistorySet =
-        subscriptionHistoryRepository.findByProfile_id(profileId);
+    long generation = homeFeedCache.generation(profileId);
+    String etag = "W/\"feed-" + profileId + "-" + homeFeedStore.getWatermark(profileId) + "\"";
+    if (webRequest.checkNotModified(etag)) {
+      return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+    }
 
-    List<FeedResponse> feeds = extractFeeds(subscriptionHistorySet);
+    String page = "offset=" + offset + "&limit=" + limit + "&before=" + before;
+    Object cached = homeFeedCache.get(profileId, page);
+    if (cached != null) {
+      return ResponseEntity.ok().eTag(etag).body(cached);
+    }
 
-    // Sorts the feeds in descending order of dateTime
-    feeds.sort((o1, o2) -> o2.dateTime.compareTo(o1.dateTime));
+    ResponseEntity response;
+    if (before != null) {
+      response = getHomeFeedBefore(profileId, before, limit);
+    } else {
+      response = getHomeFeedPage(profileId, offset, limit);
+    }
+    if (response.getStatusCode() != HttpStatus.OK) {
+      return response;
+    }
+    homeFeedCache.put(profileId, page, response.getBody(), generation);
+    return ResponseEntity.ok().eTag(etag).body(response.getBody());
+  }
 
+  /**
+   * Get the page of the home feed at the given offset from whichever source feed.source selects.
+   * Feeds are not aggregated, so the offset of the next page is always the offset plus the limit.
+   *
+   * @param profileId The profile that the feed belongs to
+   * @param offset the number of feeds to skip
+   * @param limit the number of feeds to return
+   * @return The resulting feed information, with the cursor of the following page when read from
+   *     the feed store
+   */
+  private ResponseEntity getHomeFeedPage(Integer profileId, Integer offset, Integer limit) {
     if (offset == null) {
       offset = 0;
     }
 
-    List<FeedResponse> limitedFeeds = extractLimitedFeeds(feeds, offset, limit);
+    List<FeedResponse> limitedFeeds;
+    String nextCursor = null;
+    if (feedSource.equals("store")) {
+      List<FeedEntry> entries = homeFeedStore.getFeed(profileId, offset, limit);
+      limitedFeeds = HomeFeedStore.toFeedResponses(entries);
+      if (limit != null && !entries.isEmpty() && entries.size() == limit) {
+        nextCursor = FeedCursor.after(entries.get(entries.size() - 1)).encode();
+      }
+    } else if (feedSource.equals("assemble")) {
+      limitedFeeds = feedAssembler.assembleFeed(profileId, offset, limit);
+    } else {
+      limitedFeeds = feedAssembler.queryFeed(profileId, offset, limit);
+    }
 
-    Map<String, List<FeedResponse>> result = new HashMap<>();
+    Map<String, Object> result = new HashMap<>();
     result.put("feeds", limitedFeeds);
+    if (nextCursor != null) {
+      result.put("next_cursor", nextCursor);
+    }
     JSONObject obj = new JSONObject(result);
     return new ResponseEntity(obj, HttpStatus.OK);
   }
+
+  /**
+   * Get the page of the home feed that comes after the given cursor. The page is read directly from
+   * the feed store index, so its cost does not depend on how deep into the feed the cursor is.
+   *
+   * @param profileId The profile that the feed belongs to
+   * @param before the cursor of the page to return, empty for the first page
+   * @param limit the number of feeds to return, defaults to 10
+   * @return The resulting feed information with the cursor of the following page if there is one
+   */
+  private ResponseEntity getHomeFeedBefore(Integer profileId, String before, Integer limit) {
+    if (!feedSource.equals("store")) {
+      return new ResponseEntity<>(
+          "Cursor pagination requires the feed store to be enabled", HttpStatus.BAD_REQUEST);
+    }
+    FeedCursor cursor = null;
+    if (!before.isEmpty()) {
+      cursor = FeedCursor.decode(before);
+      if (cursor == null) {
+        return new ResponseEntity<>("Invalid cursor", HttpStatus.BAD_REQUEST);
+      }
+    }
+    if (limit == null) {
+      limit = 10;
+    }
+
+    Map<String, Object> result = new HashMap<>();
+    if (aggregationWindow > 0 && limit > 0) {
+      FeedPage feedPage =
+          homeFeedStore.getAggregatedFeed(
+              profileId, cursor, limit, Duration.ofSeconds(aggregationWindow));
+      result.put("feeds", feedPage.getFeeds());
+      if (feedPage.getNext() != null) {
+        result.put("next_cursor", feedPage.getNext().encode());
+      }
+    } else {
+      List<FeedEntry> entries =
+          cursor == null
+              ? homeFeedStore.getFeed(profileId, 0, limit)
+              : homeFeedStore.getFeedBefore(profileId, cursor, limit);
+      result.put("feeds", HomeFeedStore.toFeedResponses(entries));
+      if (!entries.isEmpty() && entries.size() == limit) {
+        result.put("next_cursor", FeedCursor.after(entries.get(entries.size() - 1)).encode());
+      }
+    }
+    JSONObject obj = new JSONObject(result);
+    return new ResponseEntity(obj, HttpStatus.OK);
+  }
+
+  /**
+   * Stream new home feed entries to the client as server sent events as they are written, so the
+   * client does not have to poll getHomeFeed. Each event is named "feed" and holds a single feed
+   * in the same format as getHomeFeed.
+   *
+   * @param profileId The profile that the feed belongs to
+   * @param session The current logged in session
+   * @return The open event stream
+   */
+  @GetMapping(path = "/homefeed/{profileId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamHomeFeed(
+      @PathVariable Integer profileId, HttpSession session) {
+
+    // Check if authorised
+    ResponseEntity<String> authorisedResponse =
+        UserSecurityService.checkAuthorised(profileId, session, profileRepository);
+    if (authorisedResponse != null) {
+      return new ResponseEntity<>(authorisedResponse.getStatusCode());
+    }
+
+    return new ResponseEntity<>(homeFeedBroadcaster.subscribe(profileId), HttpStatus.OK);
+  }
 }
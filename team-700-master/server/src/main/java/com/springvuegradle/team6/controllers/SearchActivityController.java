@@ -0,0 +1,222 @@
+package com.springvuegradle.team6.controllers;
+
+import com.springvuegradle.team6.models.Activity;
+import com.springvuegradle.team6.models.ActivityRepository;
+import com.springvuegradle.team6.models.ActivityRoleRepository;
+import com.springvuegradle.team6.models.ActivityType;
+import com.springvuegradle.team6.models.SearchResult;
+import com.springvuegradle.team6.responses.SearchActivityResponse;
+import net.minidev.json.JSONObject;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpSession;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@CrossOrigin(
+    origins = {
+      "http://localhost:9000",
+      "http://localhost:9500",
+      "https://csse-s302g7.canterbury.ac.nz/test",
+      "https://csse-s302g7.canterbury.ac.nz/prod"
+    },
+    allowCredentials = "true",
+    allowedHeaders = "://",
+    methods = {
+      RequestMethod.GET,
+      RequestMethod.POST,
+      RequestMethod.DELETE,
+      RequestMethod.PUT,
+      RequestMethod.PATCH
+    })
+@RequestMapping("/activities")
+public class SearchActivityController {
+
+  private final ActivityRepository activityRepository;
+  private final ActivityRoleRepository activityRoleRepository;
+
+  SearchActivityController(
+      ActivityRepository activityRepository, ActivityRoleRepository activityRoleRepository) {
+    this.activityRepository = activityRepository;
+    this.activityRoleRepository = activityRoleRepository;
+  }
+
+  /**
+   * Searches the activities the user can see by words in their name or description, activity
+   * types, hashtag and creation date. Archived activities, private activities of other profiles
+   * and restricted activities the user has no role in are never returned.
+   *
+   * @param terms words to search for in the name and description
+   * @param activityTypes space separated activity types the activities must have
+   * @param method whether the activities need all of the activity types AND or any of them OR
+   * @param hashtag a hashtag the activities must have
+   * @param from the earliest creation date, as an ISO date time
+   * @param to the latest creation date, as an ISO date time
+   * @param offset the number of results to skip, defaults to 0
+   * @param limit the number of results to return, defaults to 10 and at most 100
+   * @param session the current logged in user session
+   * @return the matching activities, best matches first, and the total number of matches
+   */
+  @GetMapping("/search")
+  public ResponseEntity searchActivities(
+      @RequestParam(name = "query", required = false) String terms,
+      @RequestParam(name = "types", required = false) String activityTypes,
+      @RequestParam(name = "method", required = false) String method,
+      @RequestParam(name = "hashtag", required = false) String hashtag,
+      @RequestParam(name = "from", required = false) String from,
+      @RequestParam(name = "to", required = false) String to,
+      @RequestParam(name = "offset", required = false) Integer offset,
+      @RequestParam(name = "limit", required = false) Integer limit,
+      HttpSession session) {
+    Object id = session.getAttribute("id");
+    if (id == null) {
+      return new ResponseEntity<>("Must be logged in", HttpStatus.UNAUTHORIZED);
+    }
+    if (terms != null && terms.isBlank()) {
+      terms = null;
+    }
+    if (terms == null && activityTypes == null && hashtag == null && from == null && to == null) {
+      return new ResponseEntity<>("Must specify some search parameters", HttpStatus.BAD_REQUEST);
+    }
+    if (method != null && !method.equals("AND") && !method.equals("OR")) {
+      return new ResponseEntity<>("Method must be AND or OR", HttpStatus.BAD_REQUEST);
+    }
+    if (offset == null) {
+      offset = 0;
+    }
+    if (limit == null) {
+      limit = 10;
+    }
+    if (offset < 0 || limit < 1 || limit > 100) {
+      return new ResponseEntity<>(
+          "Offset must not be negative and limit must be between 1 and 100",
+          HttpStatus.BAD_REQUEST);
+    }
+
+    Set<ActivityType> types = null;
+    if (activityTypes != null) {
+      types = new HashSet<>();
+      for (String activityType : activityTypes.trim().split("\\s+")) {
+        ActivityType match = null;
+        for (ActivityType value : ActivityType.values()) {
+          if (value.name().equalsIgnoreCase(activityType)) {
+            match = value;
+          }
+        }
+        if (match == null) {
+          return new ResponseEntity<>(
+              "Unknown activity type " + activityType, HttpStatus.BAD_REQUEST);
+        }
+        types.add(match);
+      }
+    }
+
+    if (hashtag != null) {
+      hashtag = hashtag.toLowerCase();
+      if (hashtag.startsWith("#")) {
+        hashtag = hashtag.substring(1);
+      }
+    }
+
+    LocalDateTime fromDate;
+    LocalDateTime toDate;
+    try {
+      fromDate = from == null ? null : LocalDateTime.parse(from);
+      toDate = to == null ? null : LocalDateTime.parse(to);
+    } catch (DateTimeParseException e) {
+      return new ResponseEntity<>("Dates must be ISO date times", HttpStatus.BAD_REQUEST);
+    }
+
+    int viewerId = Integer.parseInt(id.toString());
+    SearchResult<Activity> searchResult =
+        activityRepository.searchActivities(
+            terms,
+            types,
+            method,
+            hashtag,
+            fromDate,
+            toDate,
+            viewerId,
+            activityRoleRepository.findActivityIdsByProfileId(viewerId),
+            limit,
+            offset);
+
+    List<SearchActivityResponse> results = new ArrayList<>();
+    for (Activity activity : searchResult.getResults()) {
+      results.add(new SearchActivityResponse(activity));
+    }
+    JSONObject resultsObject = new JSONObject();
+    resultsObject.put("results", results);
+    resultsObject.put("total", searchResult.getTotal());
+    return new ResponseEntity(resultsObject, HttpStatus.OK);
+  }
+
+  /**
+   * Searches the activities the user can see within a radius of a point, nearest first. Only
+   * activities whose location has coordinates can be found. Archived activities, private activities
+   * of other profiles and restricted activities the user has no role in are never returned.
+   *
+   * @param latitude the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radius the radius in kilometres
+   * @param offset the number of results to skip, defaults to 0
+   * @param limit the number of results to return, defaults to 10 and at most 100
+   * @param session the current logged in user session
+   * @return the activities with their distance in kilometres, and the total number of matches
+   */
+  @GetMapping("/nearby")
+  public ResponseEntity searchActivitiesNearby(
+      @RequestParam(name = "latitude") double latitude,
+      @RequestParam(name = "longitude") double longitude,
+      @RequestParam(name = "radius") double radius,
+      @RequestParam(name = "offset", required = false) Integer offset,
+      @RequestParam(name = "limit", required = false) Integer limit,
+      HttpSession session) {
+    Object id = session.getAttribute("id");
+    if (id == null) {
+      return new ResponseEntity<>("Must be logged in", HttpStatus.UNAUTHORIZED);
+    }
+    if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+      return new ResponseEntity<>(
+          "Latitude must be between -90 and 90 and longitude between -180 and 180",
+          HttpStatus.BAD_REQUEST);
+    }
+    if (!(radius > 0)) {
+      return new ResponseEntity<>("Radius must be positive", HttpStatus.BAD_REQUEST);
+    }
+    if (offset == null) {
+      offset = 0;
+    }
+    if (limit == null) {
+      limit = 10;
+    }
+    if (offset < 0 || limit < 1 || limit > 100) {
+      return new ResponseEntity<>(
+          "Offset must not be negative and limit must be between 1 and 100",
+          HttpStatus.BAD_REQUEST);
+    }
+
+    int viewerId = Integer.parseInt(id.toString());
+    SearchResult<SearchActivityResponse> searchResult =
+        activityRepository.searchActivitiesNear(
+            latitude,
+            longitude,
+            radius,
+            viewerId,
+            activityRoleRepository.findActivityIdsByProfileId(viewerId),
+            limit,
+            offset);
+
+    JSONObject resultsObject = new JSONObject();
+    resultsObject.put("results", searchResult.getResults());
+    resultsObject.put("total", searchResult.getTotal());
+    return new ResponseEntity(resultsObject, HttpStatus.OK);
+  }
+}
@@ -0,0 +1,154 @@
+package com.springvuegradle.team6.controllers;
+
+import com.springvuegradle.team6.models.Activity;
+import com.springvuegradle.team6.models.ActivityRepository;
+import com.springvuegradle.team6.models.ActivityRoleRepository;
+import com.springvuegradle.team6.models.ProfileRepository;
+import com.springvuegradle.team6.models.SearchResult;
+import com.springvuegradle.team6.models.TagRepository;
+import com.springvuegradle.team6.responses.SearchActivityResponse;
+import com.springvuegradle.team6.responses.SearchProfileResponse;
+import com.springvuegradle.team6.services.FederatedSearch;
+import com.springvuegradle.team6.services.FederatedSearchResult;
+import net.minidev.json.JSONObject;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@RestController
+@CrossOrigin(
+    origins = {
+      "http://localhost:9000",
+      "http://localhost:9500",
+      "https://csse-s302g7.canterbury.ac.nz/test",
+      "https://csse-s302g7.canterbury.ac.nz/prod"
+    },
+    allowCredentials = "true",
+    allowedHeaders = "://",
+    methods = {
+      RequestMethod.GET,
+      RequestMethod.POST,
+      RequestMethod.DELETE,
+      RequestMethod.PUT,
+      RequestMethod.PATCH
+    })
+@RequestMapping("/search")
+public class SearchController {
+
+  private final ProfileRepository profileRepository;
+  private final ActivityRepository activityRepository;
+  private final ActivityRoleRepository activityRoleRepository;
+  private final TagRepository tagRepository;
+  private final FederatedSearch federatedSearch;
+
+  SearchController(
+      ProfileRepository profileRepository,
+      ActivityRepository activityRepository,
+      ActivityRoleRepository activityRoleRepository,
+      TagRepository tagRepository,
+      FederatedSearch federatedSearch) {
+    this.profileRepository = profileRepository;
+    this.activityRepository = activityRepository;
+    this.activityRoleRepository = activityRoleRepository;
+    this.tagRepository = tagRepository;
+    this.federatedSearch = federatedSearch;
+  }
+
+  /**
+   * Searches profiles by full name, activities by name and description, and hashtags by prefix in
+   * one request for the search bar. The three searches run concurrently and a search that does not
+   * answer in time is left out of the response and named in unavailable, so the response holds
+   * whatever results could be found.
+   *
+   * @param terms the words typed in the search bar
+   * @param limit the number of results of each kind to return, defaults to 5 and at most 20
+   * @param session the current logged in user session
+   * @return the profiles, activities and hashtags found with the totals of the profiles and
+   *     activities, and the searches that are missing
+   */
+  @GetMapping
+  public ResponseEntity search(
+      @RequestParam(name = "query") String terms,
+      @RequestParam(name = "limit", required = false) Integer limit,
+      HttpSession session) {
+    Object id = session.getAttribute("id");
+    if (id == null) {
+      return new ResponseEntity<>("Must be logged in", HttpStatus.UNAUTHORIZED);
+    }
+    if (terms.isBlank()) {
+      return new ResponseEntity<>("Must specify some search parameters", HttpStatus.BAD_REQUEST);
+    }
+    if (limit == null) {
+      limit = 5;
+    }
+    if (limit < 1 || limit > 20) {
+      return new ResponseEntity<>("Limit must be between 1 and 20", HttpStatus.BAD_REQUEST);
+    }
+
+    String query = terms.trim();
+    int viewerId = Integer.parseInt(id.toString());
+    int pageSize = limit;
+    Map<String, Supplier<Object>> sources = new LinkedHashMap<>();
+    sources.put("profiles", () -> searchProfiles(query, pageSize));
+    sources.put("activities", () -> searchActivities(query, viewerId, pageSize));
+    String hashtag = query.startsWith("#") ? query.substring(1) : query;
+    if (hashtag.matches("^[a-zA-Z0-9_]+$")) {
+      sources.put("hashtags", () -> searchHashtags(hashtag.toLowerCase(), pageSize));
+    }
+
+    FederatedSearchResult searchResult = federatedSearch.search(sources);
+    JSONObject resultsObject = new JSONObject();
+    resultsObject.putAll(searchResult.getResults());
+    resultsObject.put("unavailable", searchResult.getUnavailable());
+    return new ResponseEntity(resultsObject, HttpStatus.OK);
+  }
+
+  private Map<String, Object> searchProfiles(String query, int limit) {
+    SearchResult<SearchProfileResponse> searchResult =
+        profileRepository.searchFullnameProjected(query, null, null, limit, 0);
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("results", searchResult.getResults());
+    result.put("total", searchResult.getTotal());
+    return result;
+  }
+
+  private Map<String, Object> searchActivities(String query, int viewerId, int limit) {
+    SearchResult<Activity> searchResult =
+        activityRepository.searchActivities(
+            query,
+            null,
+            null,
+            null,
+            null,
+            null,
+            viewerId,
+            activityRoleRepository.findActivityIdsByProfileId(viewerId),
+            limit,
+            0);
+    List<SearchActivityResponse> results = new ArrayList<>();
+    for (Activity activity : searchResult.getResults()) {
+      results.add(new SearchActivityResponse(activity));
+    }
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put("results", results);
+    result.put("total", searchResult.getTotal());
+    return result;
+  }
+
+  private Map<String, Object> searchHashtags(String hashtag, int limit) {
+    Map<String, Object> result = new LinkedHashMap<>();
+    result.put(
+        "results",
+        tagRepository.findTagsMatchingSearch(
+            hashtag.replace("_", "\\_"), PageRequest.of(0, limit)));
+    return result;
+  }
+}
@@ -4,8 +4,13 @@ import com.springvuegradle.team6.models.Email;
 import com.springvuegradle.team6.models.EmailRepository;
 import com.springvuegradle.team6.models.Profile;
 import com.springvuegradle.team6.models.ProfileRepository;
+import com.springvuegradle.team6.models.SearchCursor;
+import com.springvuegradle.team6.models.SearchResult;
 import com.springvuegradle.team6.responses.SearchProfileResponse;
+import com.springvuegradle.team6.services.ProfileSearchCache;
+import com.springvuegradle.team6.services.ProfileTypeaheadCache;
 import net.minidev.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -37,21 +42,136 @@ public class SearchProfileController {
 
   private final ProfileRepository profileRepository;
   private final EmailRepository emailRepository;
+  private final ProfileSearchCache profileSearchCache;
+  private final ProfileTypeaheadCache profileTypeaheadCache;
 
-  SearchProfileController(ProfileRepository profileRepository, EmailRepository emailRepository) {
+  /**
+   * Whether fullname and nickname searches build their results from the fields stored in the
+   * search index instead of loading each matching profile
+   */
+  @Value("${search.profiles.projection:true}")
+  private boolean projection;
+
+  SearchProfileController(
+      ProfileRepository profileRepository,
+      EmailRepository emailRepository,
+      ProfileSearchCache profileSearchCache,
+      ProfileTypeaheadCache profileTypeaheadCache) {
     this.profileRepository = profileRepository;
     this.emailRepository = emailRepository;
+    this.profileSearchCache = profileSearchCache;
+    this.profileTypeaheadCache = profileTypeaheadCache;
+  }
+
+  /**
+   * Type-ahead for profile names. Returns the profiles with a first name, last name, nickname or
+   * full name that has words starting with each of the typed words, best matches first. Results
+   * for recently typed prefixes are served from memory.
+   *
+   * @param name the words typed so far
+   * @param limit the number of results to return, defaults to 10 and at most 50
+   * @param session the current logged in user session
+   * @return the matching profiles
+   */
+  @GetMapping("/autocomplete")
+  public ResponseEntity getProfileNameAutocomplete(
+      @RequestParam(name = "name") String name,
+      @RequestParam(name = "limit", required = false) Integer limit,
+      HttpSession session) {
+    Object id = session.getAttribute("id");
+    if (id == null) {
+      return new ResponseEntity<>("Must be logged in", HttpStatus.UNAUTHORIZED);
+    }
+    if (limit == null) {
+      limit = 10;
+    }
+    if (limit < 1 || limit > 50) {
+      return new ResponseEntity<>("Limit must be between 1 and 50", HttpStatus.BAD_REQUEST);
+    }
+
+    List<SearchProfileResponse> results;
+    if (name.isBlank()) {
+      results = new ArrayList<>();
+    } else {
+      String key = ProfileTypeaheadCache.key(name, limit);
+      results = profileTypeaheadCache.get(key);
+      if (results == null) {
+        results = profileRepository.searchNamePrefix(name, limit);
+        profileTypeaheadCache.put(key, results);
+      }
+    }
+
+    JSONObject resultsObject = new JSONObject();
+    resultsObject.put("results", results);
+    return new ResponseEntity(resultsObject, HttpStatus.OK);
+  }
+
+  /**
+   * Searches for the profiles within a radius of a point, nearest first. Only profiles whose
+   * location has coordinates can be found.
+   *
+   * @param latitude the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radius the radius in kilometres
+   * @param offset the number of results to skip, defaults to 0
+   * @param limit the number of results to return, defaults to 10 and at most 100
+   * @param session the current logged in user session
+   * @return the profiles with their distance in kilometres, and the total number of matches
+   */
+  @GetMapping("/nearby")
+  public ResponseEntity getProfilesNearby(
+      @RequestParam(name = "latitude") double latitude,
+      @RequestParam(name = "longitude") double longitude,
+      @RequestParam(name = "radius") double radius,
+      @RequestParam(name = "offset", required = false) Integer offset,
+      @RequestParam(name = "limit", required = false) Integer limit,
+      HttpSession session) {
+    Object id = session.getAttribute("id");
+    if (id == null) {
+      return new ResponseEntity<>("Must be logged in", HttpStatus.UNAUTHORIZED);
+    }
+    if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+      return new ResponseEntity<>(
+          "Latitude must be between -90 and 90 and longitude between -180 and 180",
+          HttpStatus.BAD_REQUEST);
+    }
+    if (!(radius > 0)) {
+      return new ResponseEntity<>("Radius must be positive", HttpStatus.BAD_REQUEST);
+    }
+    if (offset == null) {
+      offset = 0;
+    }
+    if (limit == null) {
+      limit = 10;
+    }
+    if (offset < 0 || limit < 1 || limit > 100) {
+      return new ResponseEntity<>(
+          "Offset must not be negative and limit must be between 1 and 100",
+          HttpStatus.BAD_REQUEST);
+    }
+
+    SearchResult<SearchProfileResponse> searchResult =
+        profileRepository.searchProfilesNear(latitude, longitude, radius, limit, offset);
+    JSONObject resultsObject = new JSONObject();
+    resultsObject.put("results", searchResult.getResults());
+    resultsObject.put("total", searchResult.getTotal());
+    return new ResponseEntity(resultsObject, HttpStatus.OK);
   }
 
   /**
    * Searches for the user based on the full name given as best as possible using the implementation
-   * of hibernate search
+   * of hibernate search. Pages can either be requested with offset and limit, or with the after
+   * cursor returned as next_cursor with the previous page. An empty after starts paging with the
+   * cursor.
    *
    * @param fullName the full name to search for
    * @param offset the number of results to skip
    * @param limit the number of results to return
+   * @param after the cursor of the page to return, next_cursor of the previous page, or empty for
+   *     the first page
    * @param session the current logged in user session
-   * @return the results of the search containing profiles that match the full name roughly
+   * @return the results of the search containing profiles that match the full name roughly, and
+   *     the total number of matching profiles
    */
   @GetMapping()
   //@RequestMapping(params = "fullname")
@@ -61,6 +181,7 @@ public class SearchProfileController {
       @RequestParam(name = "method", required = false) String method,
       @RequestParam(name = "offset", required = false) Integer offset,
       @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "after", required = false) String after,
       HttpSession session) {
     Object id = session.getAttribute("id");
     if (id == null) {
@@ -69,11 +190,22 @@ public class SearchProfileController {
     if (fullName == null && activityType == null) {
       return new ResponseEntity("Must specify some search parameters", HttpStatus.BAD_REQUEST);
     }
+    boolean paged = after != null;
+    SearchCursor cursor = null;
+    if (paged && !after.isEmpty()) {
+      cursor = SearchCursor.decode(after);
+      if (cursor == null) {
+        return new ResponseEntity<>("Invalid cursor", HttpStatus.BAD_REQUEST);
+      }
+    }
+    if (paged && limit != null && limit < 1) {
+      return new ResponseEntity<>("Limit must be at least 1", HttpStatus.BAD_REQUEST);
+    }
     if (offset == null) {
       offset = -1;
     }
     if (limit == null) {
-      limit = -1;
+      limit = paged ? 10 : -1;
     }
     String fullNameWithSpaces;
     if (fullName == null) {
@@ -88,30 +220,36 @@ public class SearchProfileController {
       activityTypesWithSpaces = activityType.replaceAll("%20", " ");
     }
 
-    List<Profile> profiles = profileRepository.searchFullname(fullNameWithSpaces, activityTypesWithSpaces, method, limit, offset);
-    System.out.println(fullNameWithSpaces);
-    System.out.println(profiles.size());
-    List<SearchProfileResponse> results = new ArrayList<>();
-    for (Profile profile : profiles) {
-      SearchProfileResponse result =
-          new SearchProfileResponse(
-              profile.getId(),
-              profile.getLastname(),
-              profile.getFirstname(),
-              profile.getMiddlename(),
-              profile.getNickname(),
-              profile.getPrimaryEmail().getAddress(),
-              profile.getActivityTypes().toString());
-      results.add(result);
+    SearchResult<SearchProfileResponse> searchResult;
+    if (paged) {
+      searchResult =
+          profileRepository.searchFullnameAfter(
+              fullNameWithSpaces, activityTypesWithSpaces, method, cursor, limit);
+    } else if (projection) {
+      searchResult =
+          profileRepository.searchFullnameProjected(
+              fullNameWithSpaces, activityTypesWithSpaces, method, limit, offset);
+    } else {
+      searchResult =
+          toResponses(
+              profileRepository.searchFullnamePage(
+                  fullNameWithSpaces, activityTypesWithSpaces, method, limit, offset));
     }
+    profileSearchCache.put(
+        ProfileSearchCache.key("fullname", fullNameWithSpaces, activityTypesWithSpaces, method),
+        searchResult.getTotal());
     JSONObject resultsObject = new JSONObject();
-    resultsObject.put("results", results);
+    resultsObject.put("results", searchResult.getResults());
+    resultsObject.put("total", searchResult.getTotal());
+    if (searchResult.getNext() != null) {
+      resultsObject.put("next_cursor", searchResult.getNext().encode());
+    }
     return new ResponseEntity(resultsObject, HttpStatus.OK);
   }
 
   /**
    * Searches for the user based on the full name given as best as possible and return the number of
-   * results
+   * results. Served from the total of the same search if a page of it was just requested.
    *
    * @param fullName the full name to search for
    * @param session the current logged in user session
@@ -146,7 +284,13 @@ public class SearchProfileController {
       activityTypesWithSpaces = activityType.replaceAll("%20", " ");
     }
 
-    Integer count = profileRepository.searchFullnameCount(fullNameWithSpaces, activityTypesWithSpaces, method);
+    String search =
+        ProfileSearchCache.key("fullname", fullNameWithSpaces, activityTypesWithSpaces, method);
+    Integer count = profileSearchCache.get(search);
+    if (count == null) {
+      count = profileRepository.searchFullnameCount(fullNameWithSpaces, activityTypesWithSpaces, method);
+      profileSearchCache.put(search, count);
+    }
     return new ResponseEntity(count, HttpStatus.OK);
   }
 
@@ -192,13 +336,18 @@ public class SearchProfileController {
   }
 
   /**
-   * Given the nickname search for profiles that have this nickname
+   * Given the nickname search for profiles that have this nickname. Pages can either be requested
+   * with offset and limit, or with the after cursor returned as next_cursor with the previous page.
+   * An empty after starts paging with the cursor.
    *
    * @param nickname the nickname to search for
    * @param offset the number of results to skip
    * @param limit the number of results to return
+   * @param after the cursor of the page to return, next_cursor of the previous page, or empty for
+   *     the first page
    * @param session the current logged in user session
-   * @return the results of the search that matches the nickname exactly
+   * @return the results of the search that matches the nickname exactly, and the total number of
+   *     matching profiles
    */
   @GetMapping
   @RequestMapping(params = "nickname")
@@ -208,6 +357,7 @@ public class SearchProfileController {
       @RequestParam(name = "method", required = false) String method,
       @RequestParam(name = "offset", required = false) Integer offset,
       @RequestParam(name = "limit", required = false) Integer limit,
+      @RequestParam(name = "after", required = false) String after,
       HttpSession session) {
     Object id = session.getAttribute("id");
     if (id == null) {
@@ -216,11 +366,22 @@ public class SearchProfileController {
     if (nickname == null && activityType == null) {
       return new ResponseEntity("Must specify some search parameters", HttpStatus.BAD_REQUEST);
     }
+    boolean paged = after != null;
+    SearchCursor cursor = null;
+    if (paged && !after.isEmpty()) {
+      cursor = SearchCursor.decode(after);
+      if (cursor == null) {
+        return new ResponseEntity<>("Invalid cursor", HttpStatus.BAD_REQUEST);
+      }
+    }
+    if (paged && limit != null && limit < 1) {
+      return new ResponseEntity<>("Limit must be at least 1", HttpStatus.BAD_REQUEST);
+    }
     if (offset == null) {
       offset = -1;
     }
     if (limit == null) {
-      limit = -1;
+      limit = paged ? 10 : -1;
     }
 
     String activityTypesWithSpaces;
@@ -230,28 +391,37 @@ public class SearchProfileController {
       activityTypesWithSpaces = activityType.replaceAll("%20", " ");
     }
     JSONObject resultsObject = new JSONObject();
-    List<Profile> profiles = profileRepository.searchNickname(nickname, activityTypesWithSpaces, method, limit, offset);
-    List<SearchProfileResponse> results = new ArrayList<>();
-    for (Profile profile : profiles) {
-      SearchProfileResponse result =
-          new SearchProfileResponse(
-              profile.getId(),
-              profile.getLastname(),
-              profile.getFirstname(),
-              profile.getMiddlename(),
-              profile.getNickname(),
-              profile.getPrimaryEmail().getAddress(),
-              profile.getActivityTypes().toString());
-      results.add(result);
+    SearchResult<SearchProfileResponse> searchResult;
+    if (paged) {
+      searchResult =
+          profileRepository.searchNicknameAfter(
+              nickname, activityTypesWithSpaces, method, cursor, limit);
+    } else if (projection) {
+      searchResult =
+          profileRepository.searchNicknameProjected(
+              nickname, activityTypesWithSpaces, method, limit, offset);
+    } else {
+      searchResult =
+          toResponses(
+              profileRepository.searchNicknamePage(
+                  nickname, activityTypesWithSpaces, method, limit, offset));
     }
+    profileSearchCache.put(
+        ProfileSearchCache.key("nickname", nickname, activityTypesWithSpaces, method),
+        searchResult.getTotal());
 
-    resultsObject.put("results", results);
+    resultsObject.put("results", searchResult.getResults());
+    resultsObject.put("total", searchResult.getTotal());
+    if (searchResult.getNext() != null) {
+      resultsObject.put("next_cursor", searchResult.getNext().encode());
+    }
     return new ResponseEntity(resultsObject, HttpStatus.OK);
   }
 
   /**
    * Given the nickname search for profiles that have this nickname and return the number of results
-   * that matches the nickname
+   * that matches the nickname. Served from the total of the same search if a page of it was just
+   * requested.
    *
    * @param nickname the nickname to search for
    * @param session the current logged in user session
@@ -275,8 +445,37 @@ public class SearchProfileController {
       activityTypesWithSpaces = activityType.replaceAll("%20", " ");
     }
 
-
-    Integer count = profileRepository.searchNicknameCount(nickname, activityTypesWithSpaces, method);
+    String search =
+        ProfileSearchCache.key("nickname", nickname, activityTypesWithSpaces, method);
+    Integer count = profileSearchCache.get(search);
+    if (count == null) {
+      count = profileRepository.searchNicknameCount(nickname, activityTypesWithSpaces, method);
+      profileSearchCache.put(search, count);
+    }
     return new ResponseEntity(count, HttpStatus.OK);
   }
+
+  /**
+   * Converts a page of loaded profiles into search responses
+   *
+   * @param searchResult the page of profiles
+   * @return the page of search responses with the same total
+   */
+  private static SearchResult<SearchProfileResponse> toResponses(
+      SearchResult<Profile> searchResult) {
+    List<SearchProfileResponse> results = new ArrayList<>();
+    for (Profile profile : searchResult.getResults()) {
+      SearchProfileResponse result =
+          new SearchProfileResponse(
+              profile.getId(),
+              profile.getLastname(),
+              profile.getFirstname(),
+              profile.getMiddlename(),
+              profile.getNickname(),
+              profile.getPrimaryEmail().getAddress(),
+              profile.getActivityTypes().toString());
+      results.add(result);
+    }
+    return new SearchResult<>(results, searchResult.getTotal());
+  }
 }
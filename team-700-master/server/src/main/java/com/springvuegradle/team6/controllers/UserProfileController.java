@@ -2,10 +2,10 @@ package com.springvuegradle.team6.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.springvuegradle.team6.models.*;
-import com.springvuegradle.team6.models.location.NamedLocation;
 import com.springvuegradle.team6.models.location.NamedLocationRepository;
 import com.springvuegradle.team6.requests.*;
 import com.springvuegradle.team6.security.UserSecurityService;
+import com.springvuegradle.team6.services.SearchIndexer;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -41,18 +41,21 @@ public class UserProfileController {
   private final RoleRepository roleRepository;
   private final EmailRepository emailRepository;
   private final NamedLocationRepository locationRepository;
+  private final SearchIndexer searchIndexer;
 
   UserProfileController(
       ProfileRepository rep,
       CountryRepository countryRepository,
       EmailRepository emailRepository,
       RoleRepository roleRep,
-      NamedLocationRepository locationRepository) {
+      NamedLocationRepository locationRepository,
+      SearchIndexer searchIndexer) {
     this.repository = rep;
     this.countryRepository = countryRepository;
     this.roleRepository = roleRep;
     this.emailRepository = emailRepository;
     this.locationRepository = locationRepository;
+    this.searchIndexer = searchIndexer;
   }
 
   /**
@@ -112,6 +115,7 @@ public class UserProfileController {
         return editEmailsResponse;
       }
       repository.save(edit);
+      searchIndexer.index(Profile.class, id);
 
       return ResponseEntity.ok("User " + edit.getFirstname() + "'s profile was updated.");
     } else {
@@ -303,17 +307,13 @@ public class UserProfileController {
       }
 
       // Update location
-      Optional<NamedLocation> optionalNamedLocation =
-          locationRepository.findByCountryAndStateAndCity(
-              location.country, location.state, location.city);
-      if (optionalNamedLocation.isPresent()) {
-        profile.setLocation(optionalNamedLocation.get());
-      } else {
-        NamedLocation newLocation =
-            new NamedLocation(location.country, location.state, location.city);
-        locationRepository.save(newLocation);
-        profile.setLocation(newLocation);
-      }
+      profile.setLocation(
+          locationRepository.findOrSave(
+              location.country,
+              location.state,
+              location.city,
+              location.latitude,
+              location.longitude));
 
       repository.save(profile);
 
@@ -1,7 +1,12 @@
 package com.springvuegradle.team6.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.springvuegradle.team6.models.location.NamedLocation;
 import com.springvuegradle.team6.requests.CreateActivityRequest;
+import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.standard.StandardFilterFactory;
+import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
+import org.hibernate.search.annotations.*;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -10,7 +15,15 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+@Indexed
 @Entity
+@AnalyzerDef(
+    name = "activityAnalyzer",
+    tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class),
+    filters = {
+      @TokenFilterDef(factory = LowerCaseFilterFactory.class),
+      @TokenFilterDef(factory = StandardFilterFactory.class)
+    })
 public class Activity {
 
   // For testing purposes only
@@ -52,20 +65,26 @@ public class Activity {
   @Id
   @GeneratedValue
   @Column(name = "id")
+  @SortableField
   private Integer id;
 
   @ManyToOne
   @JoinColumn(name = "author_id", nullable = false)
   private Profile profile;
 
+  @Field(analyzer = @Analyzer(definition = "activityAnalyzer"))
   private String activityName;
 
+  @Field(analyzer = @Analyzer(definition = "activityAnalyzer"))
   private String description;
 
+  @IndexedEmbedded
+  @Field(analyze = Analyze.NO)
   @ElementCollection(targetClass = ActivityType.class)
   @Enumerated(EnumType.ORDINAL)
   private Set<ActivityType> activityTypes;
 
+  @IndexedEmbedded(includePaths = "name")
   @ManyToMany(fetch = FetchType.EAGER)
   @JoinTable(
           name = "activity_tags",
@@ -79,8 +98,14 @@ public class Activity {
 
   private String endTime;
 
-  @ManyToOne private NamedLocation location;
+  /** Indexed by the geohash cells of its coordinates for radius searches sorted by distance */
+  @Spatial(spatialMode = SpatialMode.HASH)
+  @SortableField
+  @ManyToOne
+  private NamedLocation location;
 
+  @Field(analyze = Analyze.NO)
+  @SortableField
   @Column(columnDefinition = "datetime default NOW()")
   private LocalDateTime creationDate;
 
@@ -88,15 +113,32 @@ public class Activity {
   @ManyToMany(mappedBy = "subscriptions", fetch = FetchType.LAZY)
   private Collection<Profile> subscribers;
 
+  @Field(analyze = Analyze.NO)
   @Column(columnDefinition = "boolean default false")
   private boolean archived;
 
   @OneToMany(mappedBy = "activity")
   private List<ActivityRole> activityRole;
 
+  @Field(analyze = Analyze.NO)
   @Enumerated(EnumType.ORDINAL)
   private VisibilityType visibilityType;
 
+  /**
+   * Incremented by hibernate every time the activity, its types or its tags change. Saving an
+   * activity read before another request saved it fails with an optimistic locking failure.
+   */
+  @Version
+  @Column(columnDefinition = "bigint default 0")
+  private long version;
+
+  /** Set by the database whenever the row is written, used to catch the search index up at startup */
+  @Column(
+      columnDefinition = "timestamp default current_timestamp on update current_timestamp",
+      insertable = false,
+      updatable = false)
+  private LocalDateTime lastModified;
+
   public String getActivityName() {
     return activityName;
   }
@@ -161,6 +203,19 @@ public class Activity {
     this.profile = profile;
   }
 
+  /**
+   * The id of the profile that created the activity, indexed so activity searches can match the
+   * activities a profile created without joining the profile
+   *
+   * @return the id of the creator
+   */
+  @JsonIgnore
+  @Transient
+  @Field(analyze = Analyze.NO)
+  public Integer getCreatorId() {
+    return profile == null ? null : profile.getId();
+  }
+
   public NamedLocation getLocation() {
     return location;
   }
@@ -224,4 +279,9 @@ public class Activity {
   public void setCreationDate(LocalDateTime creationDate) {
     this.creationDate = creationDate;
   }
+
+  @JsonIgnore
+  public long getVersion() {
+    return version;
+  }
 }
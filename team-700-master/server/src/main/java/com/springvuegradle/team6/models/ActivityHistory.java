@@ -1,12 +1,21 @@
 package com.springvuegradle.team6.models;
 
+import org.springframework.data.domain.DomainEvents;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
  *
  */
 @Entity
+@Table(
+    indexes = {
+      @Index(name = "activity_history_activity_time_idx", columnList = "activity_id, time_date"),
+      @Index(name = "activity_history_time_idx", columnList = "time_date")
+    })
 public class ActivityHistory {
 
     public ActivityHistory(Activity activity, String message) {
@@ -15,6 +24,18 @@ public class ActivityHistory {
         this.timeDate = LocalDateTime.now();
     }
 
+    /**
+     * Constructor for a history row that may record an edit of the activity
+     *
+     * @param activity the activity that changed
+     * @param message the message shown on the feed
+     * @param edit whether the change is an edit of the activity
+     */
+    public ActivityHistory(Activity activity, String message, boolean edit) {
+        this(activity, message);
+        this.edit = edit;
+    }
+
     // For testing purposes only
     public ActivityHistory() {
         this.activity = null;
@@ -49,6 +70,31 @@ public class ActivityHistory {
      */
     private String message;
 
+    /**
+     * The number of consecutive edits this row stands for once it has been compacted by the
+     * history maintenance job, null for a single change
+     */
+    @Column(name = "edit_count")
+    private Integer editCount;
+
+    /**
+     * Whether this row records an edit of the activity, which the history maintenance job compacts
+     * and the home feed aggregates. Null for rows written before it was recorded.
+     */
+    @Column(name = "is_edit")
+    private Boolean edit;
+
+    /**
+     * Published by the repository each time this history is saved, so the home feeds of the
+     * profiles subscribed to the activity can be updated
+     *
+     * @return this activity history
+     */
+    @DomainEvents
+    Collection<Object> domainEvents() {
+        return Collections.singletonList(this);
+    }
+
     //==========GETTERS==========
 
     public Integer getId() {
@@ -67,6 +113,14 @@ public class ActivityHistory {
         return message;
     }
 
+    public Integer getEditCount() {
+        return editCount;
+    }
+
+    public boolean isEdit() {
+        return Boolean.TRUE.equals(edit);
+    }
+
     //==========SETTERS==========
 
     public void setId(Integer id) {
@@ -84,4 +138,12 @@ public class ActivityHistory {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    public void setEditCount(Integer editCount) {
+        this.editCount = editCount;
+    }
+
+    public void setEdit(boolean edit) {
+        this.edit = edit;
+    }
 }
@@ -1,10 +1,13 @@
 package com.springvuegradle.team6.models;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -22,4 +25,46 @@ public interface ActivityHistoryRepository extends JpaRepository<ActivityHistory
       nativeQuery = true)
   List<ActivityHistory> getActivityHistoryBetweenSubscribeStartEndDateTimeAndActivityId(
       int id, LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+  @Query(
+      value =
+          "SELECT * FROM activity_history a WHERE a.activity_id = :id AND a.time_date > :startDateTime "
+              + "AND (a.time_date < :endDateTime OR :endDateTime is NULL) "
+              + "ORDER BY a.time_date DESC, a.activity_history_id DESC LIMIT :limit",
+      nativeQuery = true)
+  List<ActivityHistory> getLatestActivityHistoryBetweenSubscribeStartEndDateTimeAndActivityId(
+      int id, LocalDateTime startDateTime, LocalDateTime endDateTime, int limit);
+
+  @Query("SELECT DISTINCT a.activity.id FROM ActivityHistory a WHERE a.timeDate < :before")
+  List<Integer> findActivityIdsWithHistoryBefore(LocalDateTime before);
+
+  @Query(
+      "SELECT a FROM ActivityHistory a WHERE a.activity.id = :activityId AND a.timeDate < :before "
+          + "ORDER BY a.timeDate ASC, a.id ASC")
+  List<ActivityHistory> findHistoryBefore(int activityId, LocalDateTime before);
+
+  @Query(
+      "SELECT DISTINCT a.activity.id FROM ActivityHistory a "
+          + "WHERE a.timeDate >= :since AND a.timeDate < :before")
+  List<Integer> findActivityIdsWithHistoryBetween(LocalDateTime since, LocalDateTime before);
+
+  @Query(
+      "SELECT a FROM ActivityHistory a WHERE a.activity.id = :activityId "
+          + "AND a.timeDate >= :since AND a.timeDate < :before ORDER BY a.timeDate ASC, a.id ASC")
+  List<ActivityHistory> findHistoryBetween(
+      int activityId, LocalDateTime since, LocalDateTime before);
+
+  ActivityHistory findFirstByActivity_IdAndTimeDateBeforeOrderByTimeDateDescIdDesc(
+      int activityId, LocalDateTime before);
+
+  @Query("SELECT a.id FROM ActivityHistory a WHERE a.timeDate < :before ORDER BY a.id")
+  List<Integer> findIdsBefore(LocalDateTime before, Pageable pageable);
+
+  @Modifying
+  @Query("UPDATE ActivityHistory a SET a.message = :message, a.editCount = :editCount WHERE a.id = :id")
+  void updateMessage(int id, String message, int editCount);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM ActivityHistory a WHERE a.id IN :ids")
+  void deleteByIdIn(Collection<Integer> ids);
 }
@@ -9,7 +9,8 @@ import java.util.Optional;
 import java.util.Set;
 
 @RepositoryRestResource
-public interface ActivityRepository extends JpaRepository<Activity, Integer> {
+public interface ActivityRepository
+    extends JpaRepository<Activity, Integer>, CustomizedActivityRepository {
   /**
    * Find activity by activity id
    *
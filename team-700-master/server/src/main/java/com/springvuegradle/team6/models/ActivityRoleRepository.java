@@ -3,10 +3,12 @@ package com.springvuegradle.team6.models;
 import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import com.springvuegradle.team6.models.ActivityRoleType;
 
+import java.util.Collection;
 import java.util.List;
 
 @RepositoryRestResource
@@ -18,6 +20,16 @@ public interface ActivityRoleRepository extends JpaRepository<ActivityRole, Inte
   ActivityRole findByProfile_IdAndActivity_Id(int profileId, int activityId);
 
   List<ActivityRole> findByActivity_Id(int activityId);
+
+  @Query("select r.id, r.profile.id from ActivityRole r where r.activity.id = :activityId")
+  List<Object[]> findRoleAndProfileIds(int activityId);
+
+  @Modifying
+  @Query("delete from ActivityRole r where r.id in :ids")
+  void deleteByIdIn(Collection<Integer> ids);
+
+  @Query("select r.activity.id from ActivityRole r where r.profile.id = :profileId")
+  List<Integer> findActivityIdsByProfileId(int profileId);
   List<Profile> findByActivity_IdAndActivityRoleType(int activityId, ActivityRoleType type);
   @Query(
           value =
@@ -0,0 +1,48 @@
+package com.springvuegradle.team6.models;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.hibernate.search.annotations.Factory;
+
+/**
+ * Builds the activity type filter of profile searches. Hibernate Search caches the filter built
+ * for each combination of activity types and method, along with the set of matching profiles in
+ * each index segment, so repeated searches on the same activity types only run the scoring query
+ * over the profiles already known to match.
+ */
+public class ActivityTypeFilterFactory {
+  private String activityTypes;
+  private String method;
+
+  /**
+   * Set the activity types to filter on
+   *
+   * @param activityTypes the activity types, lower case, sorted and space separated
+   */
+  public void setActivityTypes(String activityTypes) {
+    this.activityTypes = activityTypes;
+  }
+
+  /**
+   * Set how the activity types are combined
+   *
+   * @param method OR to match profiles with any of the activity types, otherwise all of them
+   */
+  public void setMethod(String method) {
+    this.method = method;
+  }
+
+  @Factory
+  public Query getFilter() {
+    BooleanClause.Occur occur =
+        "OR".equals(method) ? BooleanClause.Occur.SHOULD : BooleanClause.Occur.MUST;
+    BooleanQuery.Builder filter = new BooleanQuery.Builder();
+    for (String activityType : activityTypes.split(" ")) {
+      filter.add(new TermQuery(new Term("activityTypes", activityType)), occur);
+    }
+    return filter.build();
+  }
+}
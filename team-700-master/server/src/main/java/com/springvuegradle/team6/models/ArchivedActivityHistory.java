@@ -0,0 +1,76 @@
+package com.springvuegradle.team6.models;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Activity history that has passed the retention period. Rows are moved here out of the
+ * activity_history table by the history maintenance job so the table read by the home feed only
+ * holds recent history, while old history is kept for auditing.
+ */
+@Entity
+@Table(
+    name = "activity_history_archive",
+    indexes = {
+      @Index(name = "activity_history_archive_activity_time_idx", columnList = "activity_id, time_date")
+    })
+public class ArchivedActivityHistory {
+
+  // For testing purposes only
+  public ArchivedActivityHistory() {
+    this.id = null;
+    this.activityId = null;
+    this.timeDate = null;
+    this.message = null;
+  }
+
+  /** The id the row had in the activity_history table */
+  @Id
+  @Column(name = "activity_history_id")
+  private Integer id;
+
+  /** The activity the history belonged to, kept as a plain id so activities can still be deleted */
+  @Column(name = "activity_id", nullable = false)
+  private Integer activityId;
+
+  /** The time at which the change was made */
+  @Column(name = "time_date")
+  private LocalDateTime timeDate;
+
+  /** The message of the change */
+  private String message;
+
+  /** The number of edits the row stands for if it was compacted */
+  @Column(name = "edit_count")
+  private Integer editCount;
+
+  /** The time the row was archived */
+  @Column(name = "archived_date")
+  private LocalDateTime archivedDate;
+
+  //==========GETTERS==========
+
+  public Integer getId() {
+    return id;
+  }
+
+  public Integer getActivityId() {
+    return activityId;
+  }
+
+  public LocalDateTime getTimeDate() {
+    return timeDate;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public Integer getEditCount() {
+    return editCount;
+  }
+
+  public LocalDateTime getArchivedDate() {
+    return archivedDate;
+  }
+}
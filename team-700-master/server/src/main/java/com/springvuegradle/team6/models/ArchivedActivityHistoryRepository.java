@@ -0,0 +1,34 @@
+package com.springvuegradle.team6.models;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@RepositoryRestResource
+public interface ArchivedActivityHistoryRepository
+    extends JpaRepository<ArchivedActivityHistory, Integer> {
+
+  List<ArchivedActivityHistory> findByActivityIdOrderByTimeDateAsc(int activityId);
+
+  /**
+   * Copies activity history rows into the archive with one statement, so no row is read into
+   * memory on the way
+   *
+   * @param ids the ids of the activity history rows
+   * @param archivedDate the time the rows are archived
+   */
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO activity_history_archive "
+              + "(activity_history_id, activity_id, time_date, message, edit_count, archived_date) "
+              + "SELECT h.activity_history_id, h.activity_id, h.time_date, h.message, h.edit_count, "
+              + ":archivedDate FROM activity_history h WHERE h.activity_history_id IN :ids",
+      nativeQuery = true)
+  void archiveByIdIn(Collection<Integer> ids, LocalDateTime archivedDate);
+}
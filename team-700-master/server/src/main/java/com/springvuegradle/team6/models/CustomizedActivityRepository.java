@@ -0,0 +1,30 @@
+package com.springvuegradle.team6.models;
+
+import com.springvuegradle.team6.responses.SearchActivityResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+public interface CustomizedActivityRepository {
+  SearchResult<Activity> searchActivities(
+      String terms,
+      Set<ActivityType> activityTypes,
+      String method,
+      String hashtag,
+      LocalDateTime from,
+      LocalDateTime to,
+      int viewerId,
+      List<Integer> restrictedActivityIds,
+      int limit,
+      int offset);
+
+  SearchResult<SearchActivityResponse> searchActivitiesNear(
+      double latitude,
+      double longitude,
+      double radius,
+      int viewerId,
+      List<Integer> restrictedActivityIds,
+      int limit,
+      int offset);
+}
@@ -0,0 +1,257 @@
+package com.springvuegradle.team6.models;
+
+import com.springvuegradle.team6.responses.SearchActivityResponse;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.hibernate.search.engine.ProjectionConstants;
+import org.hibernate.search.exception.EmptyQueryException;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.Search;
+import org.hibernate.search.query.dsl.BooleanJunction;
+import org.hibernate.search.query.dsl.QueryBuilder;
+import org.hibernate.search.query.dsl.Unit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class CustomizedActivityRepositoryImpl implements CustomizedActivityRepository {
+  @PersistenceContext private EntityManager em;
+
+  /**
+   * Uses Hibernate search to find a page of activities that match the given words, activity types,
+   * hashtag and creation date range, best matches first and then newest first. Archived activities
+   * and activities the viewer is not allowed to see are filtered out by the index query itself, so
+   * the page and the total only count activities the viewer can see.
+   *
+   * @param terms words to match in the name or description, or null to match any
+   * @param activityTypes the activity types searched for, or null for any
+   * @param method the method used to combine the activity types AND|OR
+   * @param hashtag a hashtag the activities must have, without the #, or null for any
+   * @param from the earliest creation date, or null for no lower bound
+   * @param to the latest creation date, or null for no upper bound
+   * @param viewerId the profile searching, which sees its own activities whatever their visibility
+   * @param restrictedActivityIds the activities the viewer has a role in
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the page of matching activities and the total number of matches
+   */
+  @Override
+  public SearchResult<Activity> searchActivities(
+      String terms,
+      Set<ActivityType> activityTypes,
+      String method,
+      String hashtag,
+      LocalDateTime from,
+      LocalDateTime to,
+      int viewerId,
+      List<Integer> restrictedActivityIds,
+      int limit,
+      int offset) {
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+    QueryBuilder queryBuilder =
+        fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Activity.class).get();
+
+    // Only the words affect the relevance, the other clauses are filters that do not score
+    BooleanQuery.Builder query = new BooleanQuery.Builder();
+    query.add(
+        queryBuilder.keyword().onField("archived").matching(false).createQuery(),
+        BooleanClause.Occur.FILTER);
+    query.add(visibleTo(queryBuilder, viewerId, restrictedActivityIds), BooleanClause.Occur.FILTER);
+
+    if (terms != null) {
+      try {
+        query.add(
+            queryBuilder
+                .keyword()
+                .onField("activityName")
+                .boostedTo(3)
+                .andField("description")
+                .matching(terms)
+                .createQuery(),
+            BooleanClause.Occur.MUST);
+      } catch (EmptyQueryException e) {
+        // The terms are only punctuation, they do not narrow the search
+      }
+    }
+
+    if (activityTypes != null && !activityTypes.isEmpty()) {
+      BooleanJunction typeQuery = queryBuilder.bool();
+      for (ActivityType activityType : activityTypes) {
+        org.apache.lucene.search.Query activityTypeQuery =
+            queryBuilder
+                .keyword()
+                .onField("activityTypes")
+                .ignoreFieldBridge()
+                .matching(activityType.name())
+                .createQuery();
+        if ("OR".equals(method)) {
+          typeQuery.should(activityTypeQuery);
+        } else {
+          typeQuery.must(activityTypeQuery);
+        }
+      }
+      query.add(typeQuery.createQuery(), BooleanClause.Occur.FILTER);
+    }
+
+    if (hashtag != null) {
+      query.add(
+          queryBuilder
+              .keyword()
+              .onField("tags.name")
+              .ignoreFieldBridge()
+              .matching(hashtag)
+              .createQuery(),
+          BooleanClause.Occur.FILTER);
+    }
+
+    if (from != null && to != null) {
+      query.add(
+          queryBuilder.range().onField("creationDate").from(from).to(to).createQuery(),
+          BooleanClause.Occur.FILTER);
+    } else if (from != null) {
+      query.add(
+          queryBuilder.range().onField("creationDate").above(from).createQuery(),
+          BooleanClause.Occur.FILTER);
+    } else if (to != null) {
+      query.add(
+          queryBuilder.range().onField("creationDate").below(to).createQuery(),
+          BooleanClause.Occur.FILTER);
+    }
+
+    org.hibernate.search.jpa.FullTextQuery jpaQuery =
+        fullTextEntityManager.createFullTextQuery(query.build(), Activity.class);
+    jpaQuery.setSort(
+        new Sort(
+            SortField.FIELD_SCORE,
+            new SortField("creationDate", SortField.Type.STRING, true),
+            new SortField("id", SortField.Type.STRING, true)));
+    jpaQuery.setMaxResults(limit);
+    jpaQuery.setFirstResult(offset);
+
+    List<Activity> activities = jpaQuery.getResultList();
+    return new SearchResult<>(activities, jpaQuery.getResultSize());
+  }
+
+  /**
+   * Uses Hibernate search to find a page of the activities within the radius of a point, nearest
+   * first. The geohash cells covering the circle narrow the candidates inside the index and the
+   * exact distance is checked from the coordinates kept in the index, so no activity outside the
+   * page is loaded. Archived activities and activities the viewer is not allowed to see are
+   * filtered out by the same query.
+   *
+   * @param latitude the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radius the radius in kilometres
+   * @param viewerId the profile searching, which sees its own activities whatever their visibility
+   * @param restrictedActivityIds the activities the viewer has a role in
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the page of activities with their distance from the centre and the total number of
+   *     matches
+   */
+  @Override
+  public SearchResult<SearchActivityResponse> searchActivitiesNear(
+      double latitude,
+      double longitude,
+      double radius,
+      int viewerId,
+      List<Integer> restrictedActivityIds,
+      int limit,
+      int offset) {
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+    QueryBuilder queryBuilder =
+        fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Activity.class).get();
+
+    BooleanQuery.Builder query = new BooleanQuery.Builder();
+    query.add(
+        queryBuilder
+            .spatial()
+            .onField("location")
+            .within(radius, Unit.KM)
+            .ofLatitude(latitude)
+            .andLongitude(longitude)
+            .createQuery(),
+        BooleanClause.Occur.FILTER);
+    query.add(
+        queryBuilder.keyword().onField("archived").matching(false).createQuery(),
+        BooleanClause.Occur.FILTER);
+    query.add(visibleTo(queryBuilder, viewerId, restrictedActivityIds), BooleanClause.Occur.FILTER);
+
+    org.hibernate.search.jpa.FullTextQuery jpaQuery =
+        fullTextEntityManager.createFullTextQuery(query.build(), Activity.class);
+    jpaQuery.setSort(
+        queryBuilder
+            .sort()
+            .byDistance()
+            .onField("location")
+            .fromLatitude(latitude)
+            .andLongitude(longitude)
+            .andByNative(new SortField("id", SortField.Type.STRING, true))
+            .createSort());
+    jpaQuery.setSpatialParameters(latitude, longitude, "location");
+    jpaQuery.setProjection(ProjectionConstants.THIS, ProjectionConstants.SPATIAL_DISTANCE);
+    jpaQuery.setMaxResults(limit);
+    jpaQuery.setFirstResult(offset);
+
+    List<SearchActivityResponse> results = new ArrayList<>();
+    for (Object result : jpaQuery.getResultList()) {
+      Object[] fields = (Object[]) result;
+      SearchActivityResponse response = new SearchActivityResponse((Activity) fields[0]);
+      response.distance = (Double) fields[1];
+      results.add(response);
+    }
+    return new SearchResult<>(results, jpaQuery.getResultSize());
+  }
+
+  /**
+   * Builds the query matching the activities a profile can see, which are public activities, the
+   * activities it created and the restricted activities it has a role in. The ids of the
+   * restricted activities are matched with a single terms query, so any number of them can be
+   * given.
+   *
+   * @param queryBuilder the hibernate search query builder
+   * @param viewerId the profile searching
+   * @param restrictedActivityIds the activities the profile has a role in
+   * @return the visibility query
+   */
+  private org.apache.lucene.search.Query visibleTo(
+      QueryBuilder queryBuilder, int viewerId, List<Integer> restrictedActivityIds) {
+    BooleanJunction query =
+        queryBuilder
+            .bool()
+            .should(visibility(queryBuilder, VisibilityType.Public))
+            .should(queryBuilder.keyword().onField("creatorId").matching(viewerId).createQuery());
+
+    if (!restrictedActivityIds.isEmpty()) {
+      List<Term> ids = new ArrayList<>();
+      for (Integer id : restrictedActivityIds) {
+        ids.add(new Term("id", id.toString()));
+      }
+      query.should(
+          queryBuilder
+              .bool()
+              .must(visibility(queryBuilder, VisibilityType.Restricted))
+              .must(new TermsQuery(ids))
+              .createQuery());
+    }
+    return query.createQuery();
+  }
+
+  private org.apache.lucene.search.Query visibility(
+      QueryBuilder queryBuilder, VisibilityType visibilityType) {
+    return queryBuilder
+        .keyword()
+        .onField("visibilityType")
+        .ignoreFieldBridge()
+        .matching(visibilityType.name())
+        .createQuery();
+  }
+}
@@ -1,5 +1,7 @@
 package com.springvuegradle.team6.models;
 
+import com.springvuegradle.team6.responses.SearchProfileResponse;
+
 import java.util.List;
 
 public interface CustomizedProfileRepository {
@@ -7,7 +9,23 @@ public interface CustomizedProfileRepository {
 
   Integer searchFullnameCount(String terms, String activityType, String method);
 
+  SearchResult<Profile> searchFullnamePage(String terms, String activityType, String method, int limit, int offset);
+
+  SearchResult<SearchProfileResponse> searchFullnameProjected(String terms, String activityType, String method, int limit, int offset);
+
+  SearchResult<SearchProfileResponse> searchFullnameAfter(String terms, String activityType, String method, SearchCursor after, int limit);
+
   List<Profile> searchNickname(String terms, String activityType, String method, int limit, int offset);
 
   Integer searchNicknameCount(String terms, String activityType, String method);
+
+  SearchResult<Profile> searchNicknamePage(String terms, String activityType, String method, int limit, int offset);
+
+  SearchResult<SearchProfileResponse> searchNicknameProjected(String terms, String activityType, String method, int limit, int offset);
+
+  SearchResult<SearchProfileResponse> searchNicknameAfter(String terms, String activityType, String method, SearchCursor after, int limit);
+
+  List<SearchProfileResponse> searchNamePrefix(String prefix, int limit);
+
+  SearchResult<SearchProfileResponse> searchProfilesNear(double latitude, double longitude, double radius, int limit, int offset);
 }
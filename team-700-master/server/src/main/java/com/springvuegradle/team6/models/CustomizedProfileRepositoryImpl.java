@@ -1,18 +1,50 @@
 package com.springvuegradle.team6.models;
 
+import com.springvuegradle.team6.responses.SearchProfileResponse;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldDocs;
+import org.hibernate.search.exception.SearchException;
+import org.hibernate.search.indexes.IndexReaderAccessor;
 import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.engine.ProjectionConstants;
+import org.hibernate.search.exception.EmptyQueryException;
 import org.hibernate.search.jpa.Search;
 import org.hibernate.search.query.dsl.BooleanJunction;
+import org.hibernate.search.query.dsl.EntityContext;
 import org.hibernate.search.query.dsl.QueryBuilder;
+import org.hibernate.search.query.dsl.Unit;
+import org.springframework.beans.factory.annotation.Value;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 public class CustomizedProfileRepositoryImpl implements CustomizedProfileRepository {
+  /** Profile searches are sorted by score, with ties broken by the highest id first */
+  private static final Sort SORT =
+      new Sort(SortField.FIELD_SCORE, new SortField("id", SortField.Type.STRING, true));
+
   @PersistenceContext private EntityManager em;
 
+  /**
+   * Whether activity types restrict profile searches through the cached activity type filter
+   * instead of a clause of the scoring query
+   */
+  @Value("${search.profiles.activity.filter:true}")
+  private boolean cachedActivityFilter;
+
   /**
    * Uses Hibernate search and lucene queries to search for profiles that match the fullname
    *
@@ -25,19 +57,37 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
       String terms, String activityTypes, String method, int limit, int offset) {
     FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
 
-    try {
-      fullTextEntityManager.createIndexer().startAndWait();
-    } catch (Exception e) {
-      System.out.println(e);
-    }
-
     QueryBuilder queryBuilder =
             fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Profile.class).get();
+    return pageQuery(
+        fullTextEntityManager,
+        fullnameLuceneQuery(queryBuilder, terms, activityTypes, method),
+        activityTypes,
+        method,
+        limit,
+        offset);
+  }
+
+  /**
+   * Builds the lucene query scoring profiles against the fullname
+   *
+   * @param queryBuilder the hibernate search query builder
+   * @param terms The given fullname to search
+   * @param activityTypes the activity types searched for
+   * @param method the method used AND|OR
+   * @return the fullname query
+   */
+  private org.apache.lucene.search.Query fullnameLuceneQuery(
+      QueryBuilder queryBuilder, String terms, String activityTypes, String method) {
     org.apache.lucene.search.Query luceneQuery;
 
     if (terms == null) {
-      BooleanJunction activityQuery = addActivityTypeQuery(queryBuilder, activityTypes, method);
-      luceneQuery = activityQuery.createQuery();
+      if (cachedActivityFilter) {
+        luceneQuery = new MatchAllDocsQuery();
+      } else {
+        BooleanJunction activityQuery = addActivityTypeQuery(queryBuilder, activityTypes, method);
+        luceneQuery = activityQuery.createQuery();
+      }
     } else {
       String[] splited = terms.split(" ");
 
@@ -67,7 +117,7 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
                         .should(firstnameQuery)
                         .should(lastnameQuery)
                         .should(fullnameQuery);
-        if (activityTypes == null) {
+        if (activityTypes == null || cachedActivityFilter) {
           luceneQuery = query.createQuery();
         } else {
           BooleanJunction activityQuery = addActivityTypeQuery(queryBuilder, activityTypes, method);
@@ -75,7 +125,7 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
         }
       } else {
         BooleanJunction query = queryBuilder.bool().should(firstnameQuery).should(fullnameQuery);
-        if (activityTypes == null) {
+        if (activityTypes == null || cachedActivityFilter) {
           luceneQuery = query.createQuery();
         } else {
           BooleanJunction activityQuery = addActivityTypeQuery(queryBuilder, activityTypes, method);
@@ -83,13 +133,33 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
         }
       }
     }
-    org.apache.lucene.search.Sort sort = new Sort(
-            SortField.FIELD_SCORE,
-            new SortField("id", SortField.Type.STRING, true));
+    return luceneQuery;
+  }
 
+  /**
+   * Creates the query for a page of a profile search, sorted by score and then id
+   *
+   * @param fullTextEntityManager the full text entity manager
+   * @param luceneQuery the query scoring the profiles
+   * @param activityTypes the activity types searched for
+   * @param method the method used AND|OR
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the query results
+   */
+  private org.hibernate.search.jpa.FullTextQuery pageQuery(
+      FullTextEntityManager fullTextEntityManager,
+      org.apache.lucene.search.Query luceneQuery,
+      String activityTypes,
+      String method,
+      int limit,
+      int offset) {
     org.hibernate.search.jpa.FullTextQuery jpaQuery =
         fullTextEntityManager.createFullTextQuery(luceneQuery, Profile.class);
-    jpaQuery.setSort(sort);
+    jpaQuery.setSort(SORT);
+    if (activityTypes != null && cachedActivityFilter) {
+      filterActivityTypes(jpaQuery, activityTypes, method);
+    }
 
     // In the case where we want to implement server side pagination
     if (limit != -1) {
@@ -101,6 +171,39 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
     return jpaQuery;
   }
 
+  /**
+   * Restricts a profile search to the profiles with the given activity types using the cached
+   * activity type filter. The activity types are normalised so searches for the same types in a
+   * different order or case share a cached filter.
+   *
+   * @param jpaQuery the profile search query
+   * @param activityTypes the activity types searched for, space separated
+   * @param method the method used AND|OR
+   */
+  private void filterActivityTypes(
+      org.hibernate.search.jpa.FullTextQuery jpaQuery, String activityTypes, String method) {
+    jpaQuery
+        .enableFullTextFilter("activityTypes")
+        .setParameter("activityTypes", normaliseActivityTypes(activityTypes))
+        .setParameter("method", "OR".equals(method) ? "OR" : "AND");
+  }
+
+  /**
+   * Lower cases and sorts the activity types of a search
+   *
+   * @param activityTypes the activity types searched for, space separated
+   * @return the normalised activity types, space separated
+   */
+  private static String normaliseActivityTypes(String activityTypes) {
+    Set<String> normalised = new TreeSet<>();
+    for (String activityType : activityTypes.split(" ")) {
+      if (!activityType.isEmpty()) {
+        normalised.add(activityType.toLowerCase());
+      }
+    }
+    return String.join(" ", normalised);
+  }
+
   /**
    * Helper function that builds and returns a query on activity types
    * @param queryBuilder the hibernate search query builder
@@ -146,6 +249,62 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
     return jpaQuery.getResultList();
   }
 
+  /**
+   * Searches for a page of profiles that match the full name along with the total number of
+   * matches. The total is taken from the same execution of the query as the page.
+   *
+   * @param terms The given query parameters
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the page of matching profiles and the total number of matches
+   */
+  @Override
+  public SearchResult<Profile> searchFullnamePage(String terms, String activityType, String method, int limit, int offset) {
+    org.hibernate.search.jpa.FullTextQuery jpaQuery = searchFullnameQuery(terms, activityType, method, limit, offset);
+
+    List<Profile> profiles = jpaQuery.getResultList();
+    return new SearchResult<>(profiles, jpaQuery.getResultSize());
+  }
+
+  /**
+   * Searches for a page of profiles that match the full name along with the total number of
+   * matches, building the results from the fields stored in the search index so no profile is
+   * loaded from the database
+   *
+   * @param terms The given query parameters
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the page of matching profiles and the total number of matches
+   */
+  @Override
+  public SearchResult<SearchProfileResponse> searchFullnameProjected(String terms, String activityType, String method, int limit, int offset) {
+    return project(searchFullnameQuery(terms, activityType, method, limit, offset));
+  }
+
+  /**
+   * Searches for the page of profiles that match the full name after the given cursor, along with
+   * the total number of matches and the cursor of the next page
+   *
+   * @param terms The given query parameters
+   * @param after the cursor of the last result seen, or null for the first page
+   * @param limit The number of results to return
+   * @return the page of matching profiles and the total number of matches
+   */
+  @Override
+  public SearchResult<SearchProfileResponse> searchFullnameAfter(
+      String terms, String activityType, String method, SearchCursor after, int limit) {
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+    QueryBuilder queryBuilder =
+        fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Profile.class).get();
+    return searchAfter(
+        fullTextEntityManager,
+        fullnameLuceneQuery(queryBuilder, terms, activityType, method),
+        activityType,
+        method,
+        after,
+        limit);
+  }
+
   /**
    * Find the total number of profiles that matches the fullname
    *
@@ -171,15 +330,28 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
       String terms, String activityTypes, String method, int limit, int offset) {
     FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
 
-    try {
-      fullTextEntityManager.createIndexer().startAndWait();
-    } catch (Exception e) {
-      System.out.println(e);
-    }
-
     QueryBuilder queryBuilder =
         fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Profile.class).get();
+    return pageQuery(
+        fullTextEntityManager,
+        nicknameLuceneQuery(queryBuilder, terms, activityTypes, method),
+        activityTypes,
+        method,
+        limit,
+        offset);
+  }
 
+  /**
+   * Builds the lucene query matching profiles on the nickname
+   *
+   * @param queryBuilder the hibernate search query builder
+   * @param terms The given nickname to search
+   * @param activityTypes the activity types searched for
+   * @param method the method used AND|OR
+   * @return the nickname query
+   */
+  private org.apache.lucene.search.Query nicknameLuceneQuery(
+      QueryBuilder queryBuilder, String terms, String activityTypes, String method) {
     org.apache.lucene.search.Query nicknameQuery =
         queryBuilder.keyword().onField("nickname").matching(terms).createQuery();
 
@@ -189,28 +361,13 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
                     .must(nicknameQuery);
 
     org.apache.lucene.search.Query luceneQuery;
-    if (activityTypes == null) {
+    if (activityTypes == null || cachedActivityFilter) {
         luceneQuery =  queryBuilder.bool().must(query.createQuery()).createQuery();
     } else {
       BooleanJunction activityQuery = addActivityTypeQuery(queryBuilder, activityTypes, method);
       luceneQuery = queryBuilder.bool().must(query.createQuery()).must(activityQuery.createQuery()).createQuery();
     }
-
-    org.apache.lucene.search.Sort sort = new Sort(
-            SortField.FIELD_SCORE,
-            new SortField("id", SortField.Type.STRING, true));
-
-    org.hibernate.search.jpa.FullTextQuery jpaQuery =
-        fullTextEntityManager.createFullTextQuery(luceneQuery, Profile.class);
-    jpaQuery.setSort(sort);
-    // In the case where we want to implement server side pagination
-    if (limit != -1) {
-      jpaQuery.setMaxResults(limit);
-    }
-    if (offset != -1) {
-      jpaQuery.setFirstResult(offset);
-    }
-    return jpaQuery;
+    return luceneQuery;
   }
 
   /**
@@ -228,6 +385,286 @@ public class CustomizedProfileRepositoryImpl implements CustomizedProfileReposit
     return jpaQuery.getResultList();
   }
 
+  /**
+   * Searches for a page of profiles that match the nickname along with the total number of
+   * matches. The total is taken from the same execution of the query as the page.
+   *
+   * @param terms The given nickname to search
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the page of matching profiles and the total number of matches
+   */
+  @Override
+  public SearchResult<Profile> searchNicknamePage(String terms, String activityTypes, String method, int limit, int offset) {
+    org.hibernate.search.jpa.FullTextQuery jpaQuery = searchNicknameQuery(terms, activityTypes, method, limit, offset);
+
+    List<Profile> profiles = jpaQuery.getResultList();
+    return new SearchResult<>(profiles, jpaQuery.getResultSize());
+  }
+
+  /**
+   * Searches for a page of profiles that match the nickname along with the total number of
+   * matches, building the results from the fields stored in the search index so no profile is
+   * loaded from the database
+   *
+   * @param terms The given nickname to search
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the page of matching profiles and the total number of matches
+   */
+  @Override
+  public SearchResult<SearchProfileResponse> searchNicknameProjected(String terms, String activityTypes, String method, int limit, int offset) {
+    return project(searchNicknameQuery(terms, activityTypes, method, limit, offset));
+  }
+
+  /**
+   * Searches for the page of profiles that match the nickname after the given cursor, along with
+   * the total number of matches and the cursor of the next page
+   *
+   * @param terms The given nickname to search
+   * @param after the cursor of the last result seen, or null for the first page
+   * @param limit The number of results to return
+   * @return the page of matching profiles and the total number of matches
+   */
+  @Override
+  public SearchResult<SearchProfileResponse> searchNicknameAfter(
+      String terms, String activityTypes, String method, SearchCursor after, int limit) {
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+    QueryBuilder queryBuilder =
+        fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Profile.class).get();
+    return searchAfter(
+        fullTextEntityManager,
+        nicknameLuceneQuery(queryBuilder, terms, activityTypes, method),
+        activityTypes,
+        method,
+        after,
+        limit);
+  }
+
+  /**
+   * Runs a profile search on the profile index directly, collecting only the hits sorted after the
+   * cursor. Lucene keeps just the top hits past the cursor while collecting, so the cost of a page
+   * does not grow with how deep into the results it is, unlike skipping an offset. The results are
+   * built from the fields stored in the search index.
+   *
+   * @param fullTextEntityManager the full text entity manager
+   * @param luceneQuery the query scoring the profiles
+   * @param activityTypes the activity types searched for, or null for any
+   * @param method the method used AND|OR
+   * @param after the cursor of the last result seen, or null for the first page
+   * @param limit The number of results to return
+   * @return the page of results, the total number of matches and the cursor of the next page if
+   *     the page is full
+   */
+  private SearchResult<SearchProfileResponse> searchAfter(
+      FullTextEntityManager fullTextEntityManager,
+      org.apache.lucene.search.Query luceneQuery,
+      String activityTypes,
+      String method,
+      SearchCursor after,
+      int limit) {
+    if (activityTypes != null && cachedActivityFilter) {
+      ActivityTypeFilterFactory filterFactory = new ActivityTypeFilterFactory();
+      filterFactory.setActivityTypes(normaliseActivityTypes(activityTypes));
+      filterFactory.setMethod("OR".equals(method) ? "OR" : "AND");
+      luceneQuery =
+          new BooleanQuery.Builder()
+              .add(luceneQuery, BooleanClause.Occur.MUST)
+              .add(filterFactory.getFilter(), BooleanClause.Occur.FILTER)
+              .build();
+    }
+
+    IndexReaderAccessor readerAccessor =
+        fullTextEntityManager.getSearchFactory().getIndexReaderAccessor();
+    IndexReader reader = readerAccessor.open(Profile.class);
+    try {
+      IndexSearcher searcher = new IndexSearcher(reader);
+      TopFieldDocs hits;
+      if (after == null) {
+        hits = searcher.search(luceneQuery, limit, SORT, true, false);
+      } else {
+        hits =
+            searcher.searchAfter(
+                after.toFieldDoc(reader.maxDoc()), luceneQuery, limit, SORT, true, false);
+      }
+
+      List<SearchProfileResponse> results = new ArrayList<>();
+      for (ScoreDoc hit : hits.scoreDocs) {
+        Document document = searcher.doc(hit.doc);
+        results.add(
+            new SearchProfileResponse(
+                Integer.parseInt(document.get("id")),
+                document.get("lastname"),
+                document.get("firstname"),
+                document.get("middlename"),
+                document.get("nickname"),
+                document.get("primaryEmailAddress"),
+                document.get("activityTypeNames")));
+      }
+      SearchCursor next = null;
+      if (hits.scoreDocs.length == limit) {
+        next = SearchCursor.after((FieldDoc) hits.scoreDocs[limit - 1]);
+      }
+      return new SearchResult<>(results, hits.totalHits, next);
+    } catch (IOException e) {
+      throw new SearchException("Could not search the profile index", e);
+    } finally {
+      readerAccessor.close(reader);
+    }
+  }
+
+  /**
+   * Finds the profiles whose first name, last name, nickname or full name have words starting with
+   * each of the words typed so far, using the edge n-gram fields so every word is a single term
+   * lookup. The typed words are analysed with the normal profile analyzer, not split into n-grams.
+   *
+   * @param prefix the words typed so far
+   * @param limit the number of results to return
+   * @return the best matching profiles, projected from the search index
+   */
+  @Override
+  public List<SearchProfileResponse> searchNamePrefix(String prefix, int limit) {
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+    String[] fields = {
+      "firstnameEdgeNGram", "lastnameEdgeNGram", "nicknameEdgeNGram", "fullnameEdgeNGram"
+    };
+    EntityContext entityContext =
+        fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Profile.class);
+    for (String field : fields) {
+      entityContext.overridesForField(field, "profileAnalyzer");
+    }
+    QueryBuilder queryBuilder = entityContext.get();
+
+    BooleanJunction query = queryBuilder.bool();
+    for (String word : prefix.trim().split("\\s+")) {
+      try {
+        query.must(
+            queryBuilder
+                .keyword()
+                .onField(fields[0])
+                .boostedTo(2)
+                .andField(fields[1])
+                .boostedTo(2)
+                .andField(fields[2])
+                .andField(fields[3])
+                .matching(word)
+                .createQuery());
+      } catch (EmptyQueryException e) {
+        // The word is only punctuation, it does not narrow the search
+      }
+    }
+    if (query.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    org.hibernate.search.jpa.FullTextQuery jpaQuery =
+        fullTextEntityManager.createFullTextQuery(query.createQuery(), Profile.class);
+    jpaQuery.setSort(SORT);
+    jpaQuery.setMaxResults(limit);
+    return project(jpaQuery).getResults();
+  }
+
+  /**
+   * Finds a page of the profiles within the radius of a point, nearest first. The geohash cells
+   * covering the circle narrow the candidates inside the index and the exact distance is checked
+   * from the coordinates kept in the index, and the results are built from the stored fields, so
+   * no profile is loaded from the database.
+   *
+   * @param latitude the latitude of the centre
+   * @param longitude the longitude of the centre
+   * @param radius the radius in kilometres
+   * @param limit The number of results to return
+   * @param offset The number of results to skip
+   * @return the page of profiles with their distance from the centre and the total number of
+   *     matches
+   */
+  @Override
+  public SearchResult<SearchProfileResponse> searchProfilesNear(
+      double latitude, double longitude, double radius, int limit, int offset) {
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(em);
+    QueryBuilder queryBuilder =
+        fullTextEntityManager.getSearchFactory().buildQueryBuilder().forEntity(Profile.class).get();
+    org.apache.lucene.search.Query luceneQuery =
+        queryBuilder
+            .spatial()
+            .onField("location")
+            .within(radius, Unit.KM)
+            .ofLatitude(latitude)
+            .andLongitude(longitude)
+            .createQuery();
+
+    org.hibernate.search.jpa.FullTextQuery jpaQuery =
+        fullTextEntityManager.createFullTextQuery(luceneQuery, Profile.class);
+    jpaQuery.setSort(
+        queryBuilder
+            .sort()
+            .byDistance()
+            .onField("location")
+            .fromLatitude(latitude)
+            .andLongitude(longitude)
+            .andByNative(new SortField("id", SortField.Type.STRING, true))
+            .createSort());
+    jpaQuery.setSpatialParameters(latitude, longitude, "location");
+    jpaQuery.setMaxResults(limit);
+    jpaQuery.setFirstResult(offset);
+    return project(jpaQuery, true);
+  }
+
+  /**
+   * Runs a profile search projecting the stored fields of each hit into a search response
+   *
+   * @param jpaQuery the profile search query
+   * @return the page of results and the total number of matches
+   */
+  private SearchResult<SearchProfileResponse> project(
+      org.hibernate.search.jpa.FullTextQuery jpaQuery) {
+    return project(jpaQuery, false);
+  }
+
+  /**
+   * Runs a profile search projecting the stored fields of each hit into a search response, along
+   * with the distance from the centre of a radius search
+   *
+   * @param jpaQuery the profile search query
+   * @param withDistance whether to project the distance, the query must have spatial parameters
+   * @return the page of results and the total number of matches
+   */
+  private SearchResult<SearchProfileResponse> project(
+      org.hibernate.search.jpa.FullTextQuery jpaQuery, boolean withDistance) {
+    List<String> projection =
+        new ArrayList<>(
+            List.of(
+                ProjectionConstants.ID,
+                "lastname",
+                "firstname",
+                "middlename",
+                "nickname",
+                "primaryEmailAddress",
+                "activityTypeNames"));
+    if (withDistance) {
+      projection.add(ProjectionConstants.SPATIAL_DISTANCE);
+    }
+    jpaQuery.setProjection(projection.toArray(new String[0]));
+    List<SearchProfileResponse> results = new ArrayList<>();
+    for (Object result : jpaQuery.getResultList()) {
+      Object[] fields = (Object[]) result;
+      SearchProfileResponse response =
+          new SearchProfileResponse(
+              (Integer) fields[0],
+              (String) fields[1],
+              (String) fields[2],
+              (String) fields[3],
+              (String) fields[4],
+              (String) fields[5],
+              (String) fields[6]);
+      if (withDistance) {
+        response.distance = (Double) fields[7];
+      }
+      results.add(response);
+    }
+    return new SearchResult<>(results, jpaQuery.getResultSize());
+  }
+
   /**
    * Find the total number of profiles that matches the nickname
    *
@@ -0,0 +1,163 @@
+package com.springvuegradle.team6.models;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A single row of a profile's home feed. Rows are written (fanned out) whenever the subscription
+ * history or activity history they are derived from is saved, so the home feed can be read back
+ * with one indexed query instead of being assembled from every subscription on each request.
+ */
+@Entity
+@Table(
+    indexes = {
+      @Index(name = "feed_entry_profile_time_idx", columnList = "profile_id, time_date, feed_entry_id"),
+      @Index(name = "feed_entry_subscription_idx", columnList = "subscription_history_id"),
+      @Index(name = "feed_entry_activity_history_idx", columnList = "activity_history_id")
+    })
+public class FeedEntry {
+
+  // For testing purposes only
+  public FeedEntry() {
+    this.profileId = null;
+    this.activityId = null;
+    this.subscriptionHistoryId = null;
+    this.activityHistoryId = null;
+    this.timeDate = null;
+    this.message = null;
+  }
+
+  /**
+   * Constructor for a feed entry describing a change of the subscription itself
+   *
+   * @param subscriptionHistory the subscription the entry belongs to
+   * @param message the message displayed on the feed
+   * @param timeDate the time the subscription changed
+   */
+  public FeedEntry(SubscriptionHistory subscriptionHistory, String message, LocalDateTime timeDate) {
+    this.profileId = subscriptionHistory.getProfile().getId();
+    this.activityId = subscriptionHistory.getActivity().getId();
+    this.subscriptionHistoryId = subscriptionHistory.getId();
+    this.activityHistoryId = null;
+    this.timeDate = timeDate;
+    this.message = message;
+    this.edit = false;
+  }
+
+  /**
+   * Constructor for a feed entry describing an activity update seen through a subscription
+   *
+   * @param subscriptionHistory the subscription through which the profile sees the update
+   * @param activityHistory the activity update
+   */
+  public FeedEntry(SubscriptionHistory subscriptionHistory, ActivityHistory activityHistory) {
+    this.profileId = subscriptionHistory.getProfile().getId();
+    this.activityId = activityHistory.getActivity().getId();
+    this.subscriptionHistoryId = subscriptionHistory.getId();
+    this.activityHistoryId = activityHistory.getId();
+    this.timeDate = activityHistory.getTimeDate();
+    this.message = activityHistory.getMessage();
+    this.edit = activityHistory.isEdit();
+  }
+
+  /** Each feed entry has its own unique id, also used to order entries with the same time */
+  @Id
+  @GeneratedValue
+  @Column(name = "feed_entry_id")
+  private Integer id;
+
+  /** The profile whose home feed this entry is shown on */
+  @Column(name = "profile_id", nullable = false)
+  private Integer profileId;
+
+  /** The activity this entry is about */
+  @Column(name = "activity_id", nullable = false)
+  private Integer activityId;
+
+  /** The subscription this entry was derived from */
+  @Column(name = "subscription_history_id", nullable = false)
+  private Integer subscriptionHistoryId;
+
+  /** The activity history row this entry was derived from, null for subscription changes */
+  @Column(name = "activity_history_id")
+  private Integer activityHistoryId;
+
+  /** The time the change shown by this entry was made */
+  @Column(name = "time_date", nullable = false)
+  private LocalDateTime timeDate;
+
+  /** The message shown on the feed */
+  private String message;
+
+  /** Whether the entry shows an edit of the activity, copied from its activity history */
+  @Column(name = "is_edit")
+  private Boolean edit;
+
+  // ==========GETTERS==========
+
+  public Integer getId() {
+    return id;
+  }
+
+  public Integer getProfileId() {
+    return profileId;
+  }
+
+  public Integer getActivityId() {
+    return activityId;
+  }
+
+  public Integer getSubscriptionHistoryId() {
+    return subscriptionHistoryId;
+  }
+
+  public Integer getActivityHistoryId() {
+    return activityHistoryId;
+  }
+
+  public LocalDateTime getTimeDate() {
+    return timeDate;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public boolean isEdit() {
+    return Boolean.TRUE.equals(edit);
+  }
+
+  // ==========SETTERS==========
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public void setProfileId(Integer profileId) {
+    this.profileId = profileId;
+  }
+
+  public void setActivityId(Integer activityId) {
+    this.activityId = activityId;
+  }
+
+  public void setSubscriptionHistoryId(Integer subscriptionHistoryId) {
+    this.subscriptionHistoryId = subscriptionHistoryId;
+  }
+
+  public void setActivityHistoryId(Integer activityHistoryId) {
+    this.activityHistoryId = activityHistoryId;
+  }
+
+  public void setTimeDate(LocalDateTime timeDate) {
+    this.timeDate = timeDate;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+
+  public void setEdit(boolean edit) {
+    this.edit = edit;
+  }
+}
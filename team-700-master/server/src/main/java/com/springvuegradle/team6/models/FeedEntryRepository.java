@@ -0,0 +1,69 @@
+package com.springvuegradle.team6.models;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/** Internal to the home feed store, feed entries are read through the feed endpoints only */
+@RepositoryRestResource(exported = false)
+public interface FeedEntryRepository extends JpaRepository<FeedEntry, Integer> {
+
+  @Query(
+      value =
+          "SELECT * FROM feed_entry f WHERE f.profile_id = :profileId "
+              + "ORDER BY f.time_date DESC, f.feed_entry_id DESC",
+      nativeQuery = true)
+  List<FeedEntry> findFeed(int profileId);
+
+  @Query(
+      value =
+          "SELECT * FROM feed_entry f WHERE f.profile_id = :profileId "
+              + "ORDER BY f.time_date DESC, f.feed_entry_id DESC LIMIT :limit OFFSET :offset",
+      nativeQuery = true)
+  List<FeedEntry> findFeed(int profileId, int limit, int offset);
+
+  @Query(
+      value =
+          "SELECT * FROM feed_entry f WHERE f.profile_id = :profileId "
+              + "AND f.time_date <= :timeDate "
+              + "AND (f.time_date < :timeDate OR f.feed_entry_id < :id) "
+              + "ORDER BY f.time_date DESC, f.feed_entry_id DESC LIMIT :limit",
+      nativeQuery = true)
+  List<FeedEntry> findFeedBefore(int profileId, LocalDateTime timeDate, int id, int limit);
+
+  @Query(
+      value =
+          "SELECT CONCAT(COUNT(*), '-', COALESCE(MAX(f.feed_entry_id), 0)) FROM feed_entry f "
+              + "WHERE f.profile_id = :profileId",
+      nativeQuery = true)
+  String findWatermark(int profileId);
+
+  @Modifying
+  @Query("DELETE FROM FeedEntry f WHERE f.subscriptionHistoryId = :subscriptionHistoryId")
+  void deleteBySubscriptionHistoryId(int subscriptionHistoryId);
+
+  @Modifying
+  @Query("DELETE FROM FeedEntry f WHERE f.activityHistoryId = :activityHistoryId")
+  void deleteByActivityHistoryId(int activityHistoryId);
+
+  @Modifying
+  @Query("DELETE FROM FeedEntry f WHERE f.activityHistoryId IN :activityHistoryIds")
+  void deleteByActivityHistoryIdIn(Collection<Integer> activityHistoryIds);
+
+  List<FeedEntry> findByActivityHistoryIdIn(Collection<Integer> activityHistoryIds);
+
+  @Modifying
+  @Query(
+      "UPDATE FeedEntry f SET f.activityHistoryId = :activityHistoryId, f.message = :message "
+          + "WHERE f.id IN :ids")
+  void repointByIdIn(Collection<Integer> ids, int activityHistoryId, String message);
+
+  @Modifying
+  @Query("DELETE FROM FeedEntry f WHERE f.id IN :ids")
+  void deleteByIdIn(Collection<Integer> ids);
+}
@@ -1,5 +1,6 @@
 package com.springvuegradle.team6.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.springvuegradle.team6.exceptions.DuplicateRoleException;
 import com.springvuegradle.team6.exceptions.DuplicateSubscriptionException;
@@ -7,23 +8,48 @@ import com.springvuegradle.team6.exceptions.RoleNotFoundException;
 import com.springvuegradle.team6.exceptions.SubscriptionNotFoundException;
 import com.springvuegradle.team6.models.location.NamedLocation;
 import org.apache.lucene.analysis.core.LowerCaseFilterFactory;
+import org.apache.lucene.analysis.ngram.EdgeNGramFilterFactory;
 import org.apache.lucene.analysis.standard.StandardFilterFactory;
 import org.apache.lucene.analysis.standard.StandardTokenizerFactory;
 import org.hibernate.search.annotations.*;
+import org.hibernate.search.annotations.Parameter;
+import org.springframework.data.domain.AfterDomainEventPublication;
+import org.springframework.data.domain.DomainEvents;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 import javax.persistence.*;
+import java.time.LocalDateTime;
 import java.util.*;
 
 @Indexed
 @Entity
-@AnalyzerDef(
-    name = "profileAnalyzer",
-    tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class),
-    filters = {
-      @TokenFilterDef(factory = LowerCaseFilterFactory.class),
-      @TokenFilterDef(factory = StandardFilterFactory.class)
-    })
+@FullTextFilterDef(
+    name = "activityTypes",
+    impl = ActivityTypeFilterFactory.class,
+    cache = FilterCacheModeType.INSTANCE_AND_DOCIDSETRESULTS)
+@AnalyzerDefs({
+  @AnalyzerDef(
+      name = "profileAnalyzer",
+      tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class),
+      filters = {
+        @TokenFilterDef(factory = LowerCaseFilterFactory.class),
+        @TokenFilterDef(factory = StandardFilterFactory.class)
+      }),
+  // Indexes every prefix of every name token, so type-ahead matches partial names with a term query
+  @AnalyzerDef(
+      name = "profileEdgeNGramAnalyzer",
+      tokenizer = @TokenizerDef(factory = StandardTokenizerFactory.class),
+      filters = {
+        @TokenFilterDef(factory = LowerCaseFilterFactory.class),
+        @TokenFilterDef(factory = StandardFilterFactory.class),
+        @TokenFilterDef(
+            factory = EdgeNGramFilterFactory.class,
+            params = {
+              @Parameter(name = "minGramSize", value = "1"),
+              @Parameter(name = "maxGramSize", value = "20")
+            })
+      })
+})
 public class Profile {
 
   @Id
@@ -32,32 +58,47 @@ public class Profile {
   @SortableField
   private Integer id;
 
-  @Field(
-      index = org.hibernate.search.annotations.Index.YES,
-      analyze = Analyze.YES,
-      store = Store.NO,
-      analyzer = @Analyzer(definition = "profileAnalyzer"))
+  @Fields({
+    @Field(
+        index = org.hibernate.search.annotations.Index.YES,
+        analyze = Analyze.YES,
+        store = Store.YES,
+        analyzer = @Analyzer(definition = "profileAnalyzer")),
+    @Field(
+        name = "firstnameEdgeNGram",
+        analyzer = @Analyzer(definition = "profileEdgeNGramAnalyzer"))
+  })
   private String firstname;
 
   @Field(
       index = org.hibernate.search.annotations.Index.YES,
       analyze = Analyze.YES,
-      store = Store.NO,
+      store = Store.YES,
       analyzer = @Analyzer(definition = "profileAnalyzer"))
   private String middlename;
 
-  @Field(
-      index = org.hibernate.search.annotations.Index.YES,
-      analyze = Analyze.YES,
-      store = Store.NO,
-      analyzer = @Analyzer(definition = "profileAnalyzer"))
+  @Fields({
+    @Field(
+        index = org.hibernate.search.annotations.Index.YES,
+        analyze = Analyze.YES,
+        store = Store.YES,
+        analyzer = @Analyzer(definition = "profileAnalyzer")),
+    @Field(
+        name = "lastnameEdgeNGram",
+        analyzer = @Analyzer(definition = "profileEdgeNGramAnalyzer"))
+  })
   private String lastname;
 
-  @Field(
-      index = org.hibernate.search.annotations.Index.YES,
-      analyze = Analyze.YES,
-      store = Store.NO,
-      analyzer = @Analyzer(definition = "profileAnalyzer"))
+  @Fields({
+    @Field(
+        index = org.hibernate.search.annotations.Index.YES,
+        analyze = Analyze.YES,
+        store = Store.YES,
+        analyzer = @Analyzer(definition = "profileAnalyzer")),
+    @Field(
+        name = "nicknameEdgeNGram",
+        analyzer = @Analyzer(definition = "profileEdgeNGramAnalyzer"))
+  })
   private String nickname;
 
   @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
@@ -75,7 +116,11 @@ public class Profile {
 
   private Integer fitness;
 
-  @ManyToOne private NamedLocation location;
+  /** Indexed by the geohash cells of its coordinates for radius searches sorted by distance */
+  @Spatial(spatialMode = SpatialMode.HASH)
+  @SortableField
+  @ManyToOne
+  private NamedLocation location;
 
   @IndexedEmbedded
   @Field(analyze = Analyze.YES, store = Store.NO)
@@ -112,6 +157,20 @@ public class Profile {
       inverseJoinColumns = @JoinColumn(name = "activity_id"))
   private Collection<Activity> subscriptions;
 
+  /**
+   * Set by the database whenever the row is written, used to catch the search index up at startup.
+   * Changes to the emails and activity types are written to tables of their own, so they set it
+   * through the event published when the profile is saved.
+   */
+  @Column(
+      columnDefinition = "timestamp default current_timestamp on update current_timestamp",
+      insertable = false,
+      updatable = false)
+  private LocalDateTime lastModified;
+
+  /** Whether the emails or activity types have changed since the profile was last saved */
+  @javax.persistence.Transient private boolean indexedCollectionsChanged;
+
   public Integer getId() {
     return this.id;
   }
@@ -219,12 +278,14 @@ public class Profile {
 
     email.setPrimary(true);
     this.emails.add(email);
+    indexedCollectionsChanged = true;
   }
 
   @JsonProperty("additional_email")
   public void setEmails(Set<Email> emails) {
     clearNonPrimaryEmails();
     this.emails.addAll(emails);
+    indexedCollectionsChanged = true;
   }
 
   public void setFirstname(String firstname) {
@@ -242,6 +303,25 @@ public class Profile {
   @JsonProperty("activities")
   public void setActivityTypes(Set<ActivityType> activityTypes) {
     this.activityTypes = activityTypes;
+    indexedCollectionsChanged = true;
+  }
+
+  /**
+   * Published by the repository when this profile is saved after its emails or activity types
+   * changed, so its last modified time can be updated for the search index catch up
+   *
+   * @return this profile if its emails or activity types changed, otherwise nothing
+   */
+  @DomainEvents
+  Collection<Object> domainEvents() {
+    return indexedCollectionsChanged
+        ? Collections.singletonList(this)
+        : Collections.emptyList();
+  }
+
+  @AfterDomainEventPublication
+  void clearDomainEvents() {
+    indexedCollectionsChanged = false;
   }
 
   public void setGender(String gender) {
@@ -319,17 +399,46 @@ public class Profile {
    * @return The combined string of first, middle and last name
    */
   @javax.persistence.Transient
-  @Field(
-      index = org.hibernate.search.annotations.Index.YES,
-      analyze = Analyze.YES,
-      store = Store.YES,
-      analyzer = @Analyzer(definition = "profileAnalyzer"))
+  @Fields({
+    @Field(
+        index = org.hibernate.search.annotations.Index.YES,
+        analyze = Analyze.YES,
+        store = Store.YES,
+        analyzer = @Analyzer(definition = "profileAnalyzer")),
+    @Field(
+        name = "fullnameEdgeNGram",
+        analyzer = @Analyzer(definition = "profileEdgeNGramAnalyzer"))
+  })
   public String getFullname() {
     if (middlename == null) {
       return firstname + " " + lastname;
     }
     return firstname + " " + middlename + " " + lastname;
   }
+
+  /**
+   * Stored in the search index so search results can be built without loading the profile
+   *
+   * @return the address of the primary email
+   */
+  @JsonIgnore
+  @javax.persistence.Transient
+  @Field(index = org.hibernate.search.annotations.Index.NO, store = Store.YES)
+  public String getPrimaryEmailAddress() {
+    return getPrimaryEmail().getAddress();
+  }
+
+  /**
+   * Stored in the search index so search results can be built without loading the profile
+   *
+   * @return the activity types as shown in search results
+   */
+  @JsonIgnore
+  @javax.persistence.Transient
+  @Field(index = org.hibernate.search.annotations.Index.NO, store = Store.YES)
+  public String getActivityTypeNames() {
+    return activityTypes == null ? "[]" : activityTypes.toString();
+  }
   /**
    * Hashes a plain text password and compares to stored password hash. If the hashes match returns
    * True.
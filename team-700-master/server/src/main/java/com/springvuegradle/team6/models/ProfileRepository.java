@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.util.Collection;
 import java.util.List;
 
 @RepositoryRestResource
@@ -18,4 +19,7 @@ public interface ProfileRepository
   Integer removeById(int id);
 
   Profile findByEmails_address(String email);
+
+  @Query("select e.address, p.id from Profile p join p.emails e where e.address in :addresses")
+  List<Object[]> findIdsByEmailAddresses(Collection<String> addresses);
 }
@@ -0,0 +1,91 @@
+package com.springvuegradle.team6.models;
+
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.util.BytesRef;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in the results of a search sorted by score and then id, used to resume the search after
+ * the last result a client has seen. A cursor is the score and id of that result, and is handed to
+ * clients as an opaque url safe token.
+ */
+public class SearchCursor {
+  private static final String SEPARATOR = "|";
+
+  private final float score;
+  private final int id;
+
+  public SearchCursor(float score, int id) {
+    this.score = score;
+    this.id = id;
+  }
+
+  /**
+   * Creates the cursor pointing just after the given hit of a search sorted by score and id
+   *
+   * @param hit the last hit of a page, with its score and id sort values
+   * @return the cursor of the next page
+   */
+  static SearchCursor after(FieldDoc hit) {
+    return new SearchCursor(
+        (Float) hit.fields[0], Integer.parseInt(((BytesRef) hit.fields[1]).utf8ToString()));
+  }
+
+  /**
+   * Decodes a token previously returned by encode
+   *
+   * @param token the opaque token sent by the client
+   * @return the decoded cursor, or null if the token is not a valid cursor
+   */
+  public static SearchCursor decode(String token) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = decoded.indexOf(SEPARATOR);
+      if (separator == -1) {
+        return null;
+      }
+      float score = Float.parseFloat(decoded.substring(0, separator));
+      if (Float.isNaN(score)) {
+        return null;
+      }
+      return new SearchCursor(score, Integer.parseInt(decoded.substring(separator + 1)));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Encodes this cursor as an opaque token to be sent to the client
+   *
+   * @return the url safe token
+   */
+  public String encode() {
+    String raw = Float.toString(score) + SEPARATOR + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * The sort values of the last hit seen, to search after. No other hit has the same id, so the
+   * document number only has to place the hit after every hit with equal sort values, which the
+   * last document of the index does.
+   *
+   * @param maxDoc the number of documents in the index searched
+   * @return the hit to search after
+   */
+  FieldDoc toFieldDoc(int maxDoc) {
+    return new FieldDoc(
+        maxDoc - 1, score, new Object[] {score, new BytesRef(Integer.toString(id))});
+  }
+
+  public float getScore() {
+    return score;
+  }
+
+  public int getId() {
+    return id;
+  }
+}
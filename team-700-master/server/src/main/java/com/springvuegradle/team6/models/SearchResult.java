@@ -0,0 +1,37 @@
+package com.springvuegradle.team6.models;
+
+import java.util.List;
+
+/**
+ * A page of search results along with the total number of matches of the search, and the cursor
+ * of the next page when the search was paged with a cursor
+ *
+ * @param <T> the type of the results, entities or responses projected from the search index
+ */
+public class SearchResult<T> {
+  private final List<T> results;
+  private final int total;
+  private final SearchCursor next;
+
+  public SearchResult(List<T> results, int total) {
+    this(results, total, null);
+  }
+
+  public SearchResult(List<T> results, int total, SearchCursor next) {
+    this.results = results;
+    this.total = total;
+    this.next = next;
+  }
+
+  public List<T> getResults() {
+    return results;
+  }
+
+  public int getTotal() {
+    return total;
+  }
+
+  public SearchCursor getNext() {
+    return next;
+  }
+}
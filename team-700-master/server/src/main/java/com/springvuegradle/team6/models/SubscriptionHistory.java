@@ -1,7 +1,11 @@
 package com.springvuegradle.team6.models;
 
+import org.springframework.data.domain.DomainEvents;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 
 /**
@@ -53,6 +57,17 @@ public class SubscriptionHistory {
   @Column(name = "end_date_time")
   private LocalDateTime endDateTime;
 
+  /**
+   * Published by the repository each time this subscription is saved, so the home feed of the
+   * subscribed profile can be updated
+   *
+   * @return this subscription history
+   */
+  @DomainEvents
+  Collection<Object> domainEvents() {
+    return Collections.singletonList(this);
+  }
+
   // ==========GETTERS==========
 
   public Integer getId() {
@@ -4,6 +4,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -11,6 +12,32 @@ import java.util.Set;
 @RepositoryRestResource
 public interface SubscriptionHistoryRepository extends JpaRepository<SubscriptionHistory, Integer> {
 
+  /**
+   * Home feed of a profile as (activity_id, message, time_date) rows, most recent first. Unions the
+   * subscribe and unsubscribe events of the profile with the activity history that falls inside
+   * each subscription, so the whole feed is sorted and paginated by the database. Rows at the same
+   * time are ordered by their kind and row id, so offset pages neither repeat nor skip them.
+   */
+  String HOME_FEED_QUERY =
+          "SELECT feed.activity_id, feed.message, feed.time_date FROM (" +
+                  "SELECT s.activity_id AS activity_id, " +
+                  "CONCAT('Subscribed to the activity: ', COALESCE(a.activity_name, ''), '.') AS message, " +
+                  "s.start_date_time AS time_date, 0 AS kind, s.id AS row_id " +
+                  "FROM subscription_history s JOIN activity a ON a.id = s.activity_id " +
+                  "WHERE s.profile_id = :profileId " +
+                  "UNION ALL " +
+                  "SELECT s.activity_id, " +
+                  "CONCAT('Unsubscribed to the activity: ', COALESCE(a.activity_name, ''), '.'), " +
+                  "s.end_date_time, 1, s.id " +
+                  "FROM subscription_history s JOIN activity a ON a.id = s.activity_id " +
+                  "WHERE s.profile_id = :profileId AND s.end_date_time IS NOT NULL " +
+                  "UNION ALL " +
+                  "SELECT h.activity_id, h.message, h.time_date, 2, h.activity_history_id " +
+                  "FROM subscription_history s JOIN activity_history h ON h.activity_id = s.activity_id " +
+                  "WHERE s.profile_id = :profileId AND h.time_date > s.start_date_time " +
+                  "AND (h.time_date < s.end_date_time OR s.end_date_time IS NULL)" +
+                  ") feed ORDER BY feed.time_date DESC, feed.kind DESC, feed.row_id DESC";
+
   SubscriptionHistory findById(int id);
 
   Set<SubscriptionHistory> findByActivity_id(int activityId);
@@ -23,4 +50,18 @@ public interface SubscriptionHistoryRepository extends JpaRepository<Subscriptio
                           "and profile_id = :profileId and end_date_time is null",
           nativeQuery = true)
   List<SubscriptionHistory> findActive(int activityId, int profileId);
+
+  @Query(
+          value =
+                  "SELECT * from subscription_history where activity_id = :activityId " +
+                          "and start_date_time < :timeDate " +
+                          "and (end_date_time > :timeDate or end_date_time is null)",
+          nativeQuery = true)
+  List<SubscriptionHistory> findCovering(int activityId, LocalDateTime timeDate);
+
+  @Query(value = HOME_FEED_QUERY, nativeQuery = true)
+  List<Object[]> findHomeFeed(int profileId);
+
+  @Query(value = HOME_FEED_QUERY + " LIMIT :limit OFFSET :offset", nativeQuery = true)
+  List<Object[]> findHomeFeed(int profileId, int limit, int offset);
 }
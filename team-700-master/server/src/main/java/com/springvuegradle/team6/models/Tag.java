@@ -1,5 +1,8 @@
 package com.springvuegradle.team6.models;
 
+import org.hibernate.search.annotations.Analyze;
+import org.hibernate.search.annotations.Field;
+
 import javax.persistence.*;
 import java.util.Collection;
 
@@ -11,6 +14,7 @@ public class Tag {
   @Column(name = "id")
   private Integer id;
 
+  @Field(analyze = Analyze.NO)
   @Column(name = "name", unique = true)
   private String name;
 
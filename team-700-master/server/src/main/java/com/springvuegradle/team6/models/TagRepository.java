@@ -24,5 +24,8 @@ public interface TagRepository extends JpaRepository<Tag, Integer> {
       "SELECT t.name from Tag t left join t.activities a where t.name like :search% group by (t.name) ORDER BY COUNT(t.name) DESC")
   List<String> findTagsMatchingSearch(@Param("search") String search, Pageable pageable);
 
+  @Query(
+      "SELECT t from Tag t left join t.activities a group by t.id, t.name ORDER BY COUNT(a) DESC")
+  List<Tag> findMostUsed(Pageable pageable);
 
 }
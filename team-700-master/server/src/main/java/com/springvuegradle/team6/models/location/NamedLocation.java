@@ -2,19 +2,38 @@ package com.springvuegradle.team6.models.location;
 
 import net.bytebuddy.implementation.bind.annotation.IgnoreForBinding;
 import net.minidev.json.annotate.JsonIgnore;
+import org.hibernate.search.spatial.Coordinates;
+import org.springframework.data.domain.AfterDomainEventPublication;
+import org.springframework.data.domain.DomainEvents;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Transient;
+import java.util.Collection;
+import java.util.Collections;
 
+/**
+ * A city, optionally with the coordinates of its centre. The coordinates are what activities and
+ * profiles are indexed by for radius searches, so locations without them are not found by those
+ * searches. Activities and profiles embed the coordinates of their location in their own index
+ * documents, so when coordinates are added to a location already in use it is published as an
+ * event for them to be indexed again.
+ */
 @Entity
-public class NamedLocation {
+public class NamedLocation implements Coordinates {
   @Id @GeneratedValue @JsonIgnore private long locationID = 0;
 
   private String country;
   private String state;
   private String city;
 
+  private Double latitude;
+  private Double longitude;
+
+  /** Whether coordinates have been added since the location was last saved */
+  @Transient private boolean coordinatesAdded;
+
   public NamedLocation() {}
 
   public NamedLocation(String country, String state, String city) {
@@ -55,6 +74,52 @@ public class NamedLocation {
     this.city = city;
   }
 
+  @Override
+  public Double getLatitude() {
+    return latitude;
+  }
+
+  public void setLatitude(Double latitude) {
+    this.latitude = latitude;
+  }
+
+  @Override
+  public Double getLongitude() {
+    return longitude;
+  }
+
+  public void setLongitude(Double longitude) {
+    this.longitude = longitude;
+  }
+
+  /**
+   * Add coordinates to a stored location that has none, so the activities and profiles using it
+   * are indexed again once it is saved
+   *
+   * @param latitude the latitude of the location
+   * @param longitude the longitude of the location
+   */
+  public void addCoordinates(Double latitude, Double longitude) {
+    this.latitude = latitude;
+    this.longitude = longitude;
+    this.coordinatesAdded = true;
+  }
+
+  /**
+   * Published by the repository when this location is saved after coordinates were added to it
+   *
+   * @return this location if coordinates were added, otherwise nothing
+   */
+  @DomainEvents
+  Collection<Object> domainEvents() {
+    return coordinatesAdded ? Collections.singletonList(this) : Collections.emptyList();
+  }
+
+  @AfterDomainEventPublication
+  void clearDomainEvents() {
+    coordinatesAdded = false;
+  }
+
   @Override
   public String toString() {
     return "NamedLocation{"
@@ -9,4 +9,36 @@ import java.util.Optional;
 public interface NamedLocationRepository extends JpaRepository<NamedLocation, Long> {
 
     Optional<NamedLocation> findByCountryAndStateAndCity(String country, String state, String city);
+
+    /**
+     * Finds the location with the given country, state and city, saving it if it does not exist
+     * yet. Coordinates given for a location saved without any are added to it, and the activities
+     * and profiles already at the location are indexed again once the change is committed.
+     *
+     * @param country the country of the location
+     * @param state the state of the location
+     * @param city the city of the location
+     * @param latitude the latitude of the location, or null if not known
+     * @param longitude the longitude of the location, or null if not known
+     * @return the saved location
+     */
+    default NamedLocation findOrSave(
+            String country, String state, String city, Double latitude, Double longitude) {
+        Optional<NamedLocation> optionalNamedLocation =
+                findByCountryAndStateAndCity(country, state, city);
+        if (optionalNamedLocation.isEmpty()) {
+            NamedLocation location = new NamedLocation(country, state, city);
+            if (latitude != null && longitude != null) {
+                location.setLatitude(latitude);
+                location.setLongitude(longitude);
+            }
+            return save(location);
+        }
+        NamedLocation location = optionalNamedLocation.get();
+        if (location.getLatitude() == null && latitude != null && longitude != null) {
+            location.addCoordinates(latitude, longitude);
+            location = save(location);
+        }
+        return location;
+    }
 }
@@ -2,7 +2,6 @@ package com.springvuegradle.team6.requests;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.springvuegradle.team6.models.*;
-import com.springvuegradle.team6.models.location.NamedLocation;
 import com.springvuegradle.team6.models.location.NamedLocationRepository;
 import com.springvuegradle.team6.validators.EmailCollection;
 import org.hibernate.validator.constraints.Length;
@@ -126,14 +125,13 @@ public class EditProfileRequest {
             profile.setActivityTypes(this.activityTypes);
 
         if(this.location != null) {
-            Optional<NamedLocation> optionalNamedLocation = locationRepository.findByCountryAndStateAndCity(this.location.country, this.location.state, this.location.city);
-            if (optionalNamedLocation.isPresent()) {
-                profile.setLocation(optionalNamedLocation.get());
-            } else {
-                NamedLocation newLocation = new NamedLocation(this.location.country, this.location.state, this.location.city);
-                locationRepository.save(newLocation);
-                profile.setLocation(newLocation);
-            }
+            profile.setLocation(
+                    locationRepository.findOrSave(
+                            this.location.country,
+                            this.location.state,
+                            this.location.city,
+                            this.location.latitude,
+                            this.location.longitude));
         }
     }
 }
@@ -1,5 +1,7 @@
 package com.springvuegradle.team6.requests;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
@@ -13,4 +15,12 @@ public class LocationUpdateRequest {
   @NotNull(message = "country cannot be null")
   @NotEmpty(message = "country cannot be empty")
   public String country;
+
+  @DecimalMin(value = "-90", message = "latitude must be between -90 and 90")
+  @DecimalMax(value = "90", message = "latitude must be between -90 and 90")
+  public Double latitude;
+
+  @DecimalMin(value = "-180", message = "longitude must be between -180 and 180")
+  @DecimalMax(value = "180", message = "longitude must be between -180 and 180")
+  public Double longitude;
 }
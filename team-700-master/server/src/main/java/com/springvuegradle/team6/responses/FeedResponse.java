@@ -1,5 +1,7 @@
 package com.springvuegradle.team6.responses;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class FeedResponse {
@@ -18,4 +20,29 @@ public class FeedResponse {
 
     @JsonProperty("date_time")
     public String dateTime;
+
+    /** Number of updates collapsed into this feed by aggregation, absent for a single feed */
+    @JsonProperty("count")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Integer count;
+
+    /** Whether the feed is an edit of the activity, which is what aggregation collapses */
+    @JsonIgnore
+    public boolean edit;
+
+    /**
+     * Kind of row the feed was read from, 0 for a subscribe, 1 for an unsubscribe and 2 for an
+     * activity update, used with rowId to order feeds with the same time like the home feed query
+     */
+    @JsonIgnore
+    public int kind;
+
+    /** Id of the subscription or activity history row the feed was read from */
+    @JsonIgnore
+    public int rowId;
+
+    /** Time of the oldest update collapsed into this feed, dateTime being the newest */
+    @JsonProperty("first_date_time")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String firstDateTime;
 }
@@ -0,0 +1,61 @@
+package com.springvuegradle.team6.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.springvuegradle.team6.models.Activity;
+import com.springvuegradle.team6.models.ActivityType;
+import com.springvuegradle.team6.models.Tag;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SearchActivityResponse {
+
+  @JsonProperty("activity_id")
+  public Integer activityId;
+
+  @JsonProperty("activity_name")
+  public String activityName;
+
+  @JsonProperty("description")
+  public String description;
+
+  @JsonProperty("creator_id")
+  public Integer creatorId;
+
+  @JsonProperty("activity_types")
+  public List<String> activityTypes;
+
+  @JsonProperty("hashtags")
+  public List<String> hashtags;
+
+  @JsonProperty("creation_date")
+  public String creationDate;
+
+  /** Kilometres from the centre of a radius search, only set for those searches */
+  @JsonProperty("distance")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public Double distance;
+
+  public SearchActivityResponse(Activity activity) {
+    this.activityId = activity.getId();
+    this.activityName = activity.getActivityName();
+    this.description = activity.getDescription();
+    this.creatorId = activity.getCreatorId();
+    this.activityTypes = new ArrayList<>();
+    if (activity.getActivityTypes() != null) {
+      for (ActivityType activityType : activity.getActivityTypes()) {
+        this.activityTypes.add(activityType.name());
+      }
+    }
+    this.hashtags = new ArrayList<>();
+    if (activity.getTags() != null) {
+      for (Tag tag : activity.getTags()) {
+        this.hashtags.add(tag.getName());
+      }
+    }
+    if (activity.getCreationDate() != null) {
+      this.creationDate = activity.getCreationDate().toString();
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.springvuegradle.team6.responses;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.springvuegradle.team6.models.ActivityType;
 
@@ -28,6 +29,11 @@ public class SearchProfileResponse {
   @JsonProperty("activity_types")
   public String activityTypes;
 
+  /** Kilometres from the centre of a radius search, only set for those searches */
+  @JsonProperty("distance")
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public Double distance;
+
   public SearchProfileResponse(
           Integer profileId,
           String lastname,
@@ -0,0 +1,88 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.*;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Replaces the list of profiles with access to a restricted activity. The new list is compared with
+ * the stored roles as sets of profile ids, so the emails are resolved with one query and the roles
+ * read with another, whatever the size of the list. The roles of profiles no longer listed are
+ * deleted with one statement, and the roles of newly listed profiles are inserted together so
+ * hibernate sends them as one JDBC batch. Profiles that are listed and already have a role keep it.
+ */
+@Service
+public class ActivityAccessUpdater {
+  private final ProfileRepository profileRepository;
+  private final ActivityRoleRepository activityRoleRepository;
+
+  ActivityAccessUpdater(
+      ProfileRepository profileRepository, ActivityRoleRepository activityRoleRepository) {
+    this.profileRepository = profileRepository;
+    this.activityRoleRepository = activityRoleRepository;
+  }
+
+  /**
+   * Gives the profiles of the given emails access to the activity and removes the roles of every
+   * other profile, in one transaction. Nothing is changed if any of the emails is unknown.
+   *
+   * @param activity the restricted activity
+   * @param emails the emails of the profiles with access, any email of a profile can be used
+   * @return the emails that do not belong to any profile, in the order given
+   */
+  @Transactional
+  public List<String> replace(Activity activity, List<String> emails) {
+    Set<String> addresses = new LinkedHashSet<>(emails);
+    Map<String, Integer> profileIds = new HashMap<>();
+    if (!addresses.isEmpty()) {
+      for (Object[] row : profileRepository.findIdsByEmailAddresses(addresses)) {
+        profileIds.put((String) row[0], (Integer) row[1]);
+      }
+    }
+
+    List<String> unknown = new ArrayList<>();
+    for (String address : addresses) {
+      if (!profileIds.containsKey(address)) {
+        unknown.add(address);
+      }
+    }
+    if (!unknown.isEmpty()) {
+      return unknown;
+    }
+
+    Set<Integer> listed = new HashSet<>(profileIds.values());
+    Set<Integer> withRole = new HashSet<>();
+    List<Integer> removed = new ArrayList<>();
+    for (Object[] row : activityRoleRepository.findRoleAndProfileIds(activity.getId())) {
+      Integer profileId = (Integer) row[1];
+      if (listed.contains(profileId)) {
+        withRole.add(profileId);
+      } else {
+        removed.add((Integer) row[0]);
+      }
+    }
+    if (!removed.isEmpty()) {
+      activityRoleRepository.deleteByIdIn(removed);
+    }
+
+    listed.removeAll(withRole);
+    List<ActivityRole> added = new ArrayList<>();
+    for (Integer profileId : listed) {
+      ActivityRole activityRole = new ActivityRole();
+      activityRole.setActivity(activity);
+      activityRole.setProfile(profileRepository.getOne(profileId));
+      activityRole.setActivityRoleType(ActivityRoleType.Access);
+      added.add(activityRole);
+    }
+    activityRoleRepository.saveAll(added);
+    return unknown;
+  }
+}
@@ -0,0 +1,31 @@
+package com.springvuegradle.team6.services;
+
+/** A field of an activity changed by an edit, with its value before and after the edit */
+public class ActivityChange {
+  private final String field;
+  private final Object oldValue;
+  private final Object newValue;
+
+  public ActivityChange(String field, Object oldValue, Object newValue) {
+    this.field = field;
+    this.oldValue = oldValue;
+    this.newValue = newValue;
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  public Object getOldValue() {
+    return oldValue;
+  }
+
+  public Object getNewValue() {
+    return newValue;
+  }
+
+  @Override
+  public String toString() {
+    return field + ": " + oldValue + " -> " + newValue;
+  }
+}
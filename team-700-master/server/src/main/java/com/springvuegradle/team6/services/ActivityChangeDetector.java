@@ -0,0 +1,101 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.Activity;
+import com.springvuegradle.team6.models.Tag;
+import com.springvuegradle.team6.models.location.NamedLocation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Finds the fields of an activity changed by an edit. The fields an edit request can change are
+ * copied from the activity before the edit is applied and compared with the activity afterwards,
+ * so the edit's own rules, such as clearing the times of a continuous activity, decide the new
+ * values. Only these fields are read, nothing else of the activity or its profile is loaded.
+ */
+public class ActivityChangeDetector {
+  private final Map<String, Object> before;
+
+  /**
+   * Records the editable fields of an activity before it is edited
+   *
+   * @param activity the activity about to be edited
+   */
+  public ActivityChangeDetector(Activity activity) {
+    this.before = editableFields(activity);
+  }
+
+  /**
+   * Compares the editable fields of the edited activity with the ones recorded
+   *
+   * @param activity the activity after the edit
+   * @return the changed fields in a fixed order, empty if the edit changed nothing
+   */
+  public List<ActivityChange> changesTo(Activity activity) {
+    List<ActivityChange> changes = new ArrayList<>();
+    for (Map.Entry<String, Object> field : editableFields(activity).entrySet()) {
+      Object oldValue = before.get(field.getKey());
+      if (!Objects.equals(oldValue, field.getValue())) {
+        changes.add(new ActivityChange(field.getKey(), oldValue, field.getValue()));
+      }
+    }
+    return changes;
+  }
+
+  /**
+   * Describes a change set for the history of the activity
+   *
+   * @param changes the changed fields
+   * @return the names of the changed fields separated by commas
+   */
+  public static String describe(List<ActivityChange> changes) {
+    List<String> fields = new ArrayList<>();
+    for (ActivityChange change : changes) {
+      fields.add(change.getField());
+    }
+    return String.join(", ", fields);
+  }
+
+  private static Map<String, Object> editableFields(Activity activity) {
+    Map<String, Object> fields = new LinkedHashMap<>();
+    fields.put("name", activity.getActivityName());
+    fields.put("description", activity.getDescription());
+    fields.put(
+        "activity types",
+        activity.getActivityTypes() == null ? null : new TreeSet<>(activity.getActivityTypes()));
+    fields.put("continuous", activity.isContinuous());
+    fields.put("start time", activity.getStartTime());
+    fields.put("end time", activity.getEndTime());
+    fields.put("location", location(activity.getLocation()));
+    fields.put("visibility", activity.getVisibilityType());
+    fields.put("hashtags", hashtags(activity));
+    return fields;
+  }
+
+  private static String location(NamedLocation location) {
+    if (location == null) {
+      return null;
+    }
+    // The coordinates can be added to a stored location in place, so the values are copied
+    String description =
+        location.getCity() + ", " + location.getState() + ", " + location.getCountry();
+    if (location.getLatitude() != null && location.getLongitude() != null) {
+      description += " (" + location.getLatitude() + ", " + location.getLongitude() + ")";
+    }
+    return description;
+  }
+
+  private static TreeSet<String> hashtags(Activity activity) {
+    TreeSet<String> names = new TreeSet<>();
+    if (activity.getTags() != null) {
+      for (Tag tag : activity.getTags()) {
+        names.add(tag.getName());
+      }
+    }
+    return names;
+  }
+}
@@ -0,0 +1,271 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scheduled maintenance of the activity_history table, which otherwise grows by a row for every
+ * edit and archive of an activity. Recent history is kept as is in activity_history, history older
+ * than history.compaction.days has runs of consecutive edits of the same activity collapsed into a
+ * single row, and history older than history.retention.days is moved to activity_history_archive
+ * (or dropped when history.retention.archive is false). Either step is disabled when its number of
+ * days is 0.
+ *
+ * <p>Each batch of expired rows and the history of each compacted activity is committed in a
+ * transaction of its own, so a pass over a large table never holds its locks for long. Compaction
+ * only reads the history written since the previous compaction, apart from the first one after
+ * startup which reads all of it.
+ */
+@Service
+public class ActivityHistoryMaintenance {
+  private static final String MESSAGE_PREFIX = "Activity '";
+  private static final String UPDATED = "' was updated ";
+  private static final int BATCH_SIZE = 1000;
+
+  private final ActivityHistoryRepository activityHistoryRepository;
+  private final ArchivedActivityHistoryRepository archivedActivityHistoryRepository;
+  private final FeedEntryRepository feedEntryRepository;
+  private final HomeFeedCache homeFeedCache;
+  private final TransactionTemplate transactionTemplate;
+
+  /** The time before which history was compacted by the last compaction, null if none yet */
+  private LocalDateTime compactedBefore;
+
+  @Value("${history.compaction.days:0}")
+  private int compactionDays;
+
+  @Value("${history.retention.days:0}")
+  private int retentionDays;
+
+  @Value("${history.retention.archive:true}")
+  private boolean archive;
+
+  ActivityHistoryMaintenance(
+      ActivityHistoryRepository activityHistoryRepository,
+      ArchivedActivityHistoryRepository archivedActivityHistoryRepository,
+      FeedEntryRepository feedEntryRepository,
+      HomeFeedCache homeFeedCache,
+      PlatformTransactionManager transactionManager) {
+    this.activityHistoryRepository = activityHistoryRepository;
+    this.archivedActivityHistoryRepository = archivedActivityHistoryRepository;
+    this.feedEntryRepository = feedEntryRepository;
+    this.homeFeedCache = homeFeedCache;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /** Compacts and then expires old activity history according to the configured periods */
+  @Scheduled(cron = "${history.maintenance.cron:0 30 3 * * ?}")
+  public void runMaintenance() {
+    LocalDateTime now = LocalDateTime.now();
+    int compacted = 0;
+    int expired = 0;
+    if (compactionDays > 0) {
+      compacted = compact(now.minusDays(compactionDays));
+    }
+    if (retentionDays > 0) {
+      expired = expire(now.minusDays(retentionDays), archive);
+    }
+    if (compacted + expired > 0) {
+      homeFeedCache.clear();
+    }
+    System.getLogger("SystemEvents")
+        .log(
+            System.Logger.Level.INFO,
+            "Activity history maintenance compacted " + compacted + " and expired " + expired
+                + " rows");
+  }
+
+  /**
+   * Collapses each run of consecutive edits of the same activity made before the given time into
+   * its latest row, whose message is replaced by a summary carrying the number of edits. Only the
+   * history written since the previous compaction is read, together with the row before it, which
+   * may be the end of a run that continues. Each activity is compacted in its own transaction.
+   *
+   * @param before only history older than this is compacted
+   * @return the number of rows removed
+   */
+  public int compact(LocalDateTime before) {
+    LocalDateTime since = compactedBefore;
+    List<Integer> activityIds =
+        since == null
+            ? activityHistoryRepository.findActivityIdsWithHistoryBefore(before)
+            : activityHistoryRepository.findActivityIdsWithHistoryBetween(since, before);
+    int removed = 0;
+    for (Integer activityId : activityIds) {
+      removed += transactionTemplate.execute(status -> compactActivity(activityId, since, before));
+    }
+    compactedBefore = before;
+    return removed;
+  }
+
+  /**
+   * Removes the history made before the given time from the activity_history table along with its
+   * feed entries, in batches that are each committed on their own
+   *
+   * @param before only history older than this is expired
+   * @param archive whether the removed rows are copied into activity_history_archive first
+   * @return the number of rows removed
+   */
+  public int expire(LocalDateTime before, boolean archive) {
+    int removed = 0;
+    int expired;
+    do {
+      expired = transactionTemplate.execute(status -> expireBatch(before, archive));
+      removed += expired;
+    } while (expired == BATCH_SIZE);
+    return removed;
+  }
+
+  /**
+   * Collapses the runs of consecutive edits of one activity
+   *
+   * @param activityId the activity
+   * @param since the time from which history has not been compacted yet, null for all of it
+   * @param before only history older than this is compacted
+   * @return the number of rows removed
+   */
+  private int compactActivity(int activityId, LocalDateTime since, LocalDateTime before) {
+    List<ActivityHistory> history;
+    if (since == null) {
+      history = activityHistoryRepository.findHistoryBefore(activityId, before);
+    } else {
+      history = new ArrayList<>();
+      ActivityHistory previous =
+          activityHistoryRepository.findFirstByActivity_IdAndTimeDateBeforeOrderByTimeDateDescIdDesc(
+              activityId, since);
+      if (previous != null) {
+        history.add(previous);
+      }
+      history.addAll(activityHistoryRepository.findHistoryBetween(activityId, since, before));
+    }
+
+    int removed = 0;
+    List<ActivityHistory> run = new ArrayList<>();
+    for (ActivityHistory activityHistory : history) {
+      if (activityHistory.isEdit()) {
+        run.add(activityHistory);
+      } else {
+        removed += collapse(run);
+        run.clear();
+      }
+    }
+    removed += collapse(run);
+    return removed;
+  }
+
+  /**
+   * Removes one batch of the history made before the given time
+   *
+   * @param before only history older than this is expired
+   * @param archive whether the removed rows are copied into activity_history_archive first
+   * @return the number of rows removed
+   */
+  private int expireBatch(LocalDateTime before, boolean archive) {
+    List<Integer> ids =
+        activityHistoryRepository.findIdsBefore(before, PageRequest.of(0, BATCH_SIZE));
+    if (ids.isEmpty()) {
+      return 0;
+    }
+    if (archive) {
+      archivedActivityHistoryRepository.archiveByIdIn(ids, LocalDateTime.now());
+    }
+    feedEntryRepository.deleteByActivityHistoryIdIn(ids);
+    activityHistoryRepository.deleteByIdIn(ids);
+    return ids.size();
+  }
+
+  /**
+   * Collapses a run of consecutive edits into its latest row. Every subscription that saw any edit
+   * of the run keeps one feed entry for it, the latest it had, which is pointed at the summary row
+   * and given its message, so a subscription that ended before the latest edit still shows the
+   * updates it saw.
+   *
+   * @param run the edits in ascending order of time
+   * @return the number of rows removed
+   */
+  private int collapse(List<ActivityHistory> run) {
+    if (run.size() < 2) {
+      return 0;
+    }
+    ActivityHistory latest = run.get(run.size() - 1);
+    List<ActivityHistory> removed = run.subList(0, run.size() - 1);
+
+    int edits = 0;
+    List<Integer> runIds = new ArrayList<>();
+    for (ActivityHistory activityHistory : run) {
+      edits += activityHistory.getEditCount() == null ? 1 : activityHistory.getEditCount();
+      runIds.add(activityHistory.getId());
+    }
+    List<Integer> ids = new ArrayList<>();
+    for (ActivityHistory activityHistory : removed) {
+      ids.add(activityHistory.getId());
+    }
+
+    String message =
+        MESSAGE_PREFIX
+            + activityName(latest)
+            + UPDATED
+            + edits
+            + " times between "
+            + run.get(0).getTimeDate()
+            + " and "
+            + latest.getTimeDate();
+
+    Map<Integer, FeedEntry> kept = new HashMap<>();
+    Set<Integer> dropped = new HashSet<>();
+    for (FeedEntry entry : feedEntryRepository.findByActivityHistoryIdIn(runIds)) {
+      FeedEntry other = kept.get(entry.getSubscriptionHistoryId());
+      if (other == null || isLater(entry, other)) {
+        kept.put(entry.getSubscriptionHistoryId(), entry);
+        if (other != null) {
+          dropped.add(other.getId());
+        }
+      } else {
+        dropped.add(entry.getId());
+      }
+    }
+    List<Integer> keptIds = new ArrayList<>();
+    for (FeedEntry entry : kept.values()) {
+      keptIds.add(entry.getId());
+    }
+
+    activityHistoryRepository.updateMessage(latest.getId(), message, edits);
+    if (!dropped.isEmpty()) {
+      feedEntryRepository.deleteByIdIn(dropped);
+    }
+    if (!keptIds.isEmpty()) {
+      feedEntryRepository.repointByIdIn(keptIds, latest.getId(), message);
+    }
+    activityHistoryRepository.deleteByIdIn(ids);
+    return removed.size();
+  }
+
+  private static boolean isLater(FeedEntry entry, FeedEntry other) {
+    int order = entry.getTimeDate().compareTo(other.getTimeDate());
+    return order > 0 || (order == 0 && entry.getId() > other.getId());
+  }
+
+  /**
+   * The name of the activity at the time of an edit, as written in its message
+   *
+   * @param activityHistory an edit history row
+   * @return the activity name
+   */
+  private static String activityName(ActivityHistory activityHistory) {
+    String message = activityHistory.getMessage();
+    return message.substring(MESSAGE_PREFIX.length(), message.lastIndexOf(UPDATED));
+  }
+}
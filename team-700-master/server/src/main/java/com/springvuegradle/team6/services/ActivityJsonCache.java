@@ -0,0 +1,125 @@
+package com.springvuegradle.team6.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.springvuegradle.team6.models.Activity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the JSON of single activities, as returned by GET /activities/{activityId}. Activities
+ * are read far more often than they are edited, and rendering one serializes its profile with all
+ * of its collections. A rendered activity is kept with the version it was rendered from, so once
+ * hibernate increments the version of an edited activity its old JSON is never served again. The
+ * activity controller also drops an activity's JSON whenever it edits, archives or changes the
+ * visibility or hashtags of it. Each rendered activity carries an ETag made from a hash of its
+ * JSON, so the tag changes exactly when the JSON served does, whatever part of it changed.
+ *
+ * <p>Changes to the creator's profile and to the subscribers do not change the version of the
+ * activity, so rendered activities also expire activity.cache.ttl milliseconds after they were
+ * rendered. The least recently read activities are evicted once there are more than
+ * activity.cache.size of them.
+ */
+@Service
+public class ActivityJsonCache {
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final int maxActivities;
+  private final long ttl;
+
+  private final LinkedHashMap<Integer, RenderedActivity> activities;
+
+  ActivityJsonCache(
+      @Value("${activity.cache.size:1000}") int maxActivities,
+      @Value("${activity.cache.ttl:60000}") long ttl) {
+    this.maxActivities = maxActivities;
+    this.ttl = ttl;
+    this.activities =
+        new LinkedHashMap<Integer, RenderedActivity>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, RenderedActivity> eldest) {
+            return size() > ActivityJsonCache.this.maxActivities;
+          }
+        };
+  }
+
+  /**
+   * Get the JSON of an activity, rendering it if the cached JSON is missing, expired or from
+   * another version of the activity
+   *
+   * @param activity the activity
+   * @return the JSON of the activity and its ETag
+   * @throws JsonProcessingException if the activity cannot be serialized
+   */
+  public RenderedActivity get(Activity activity) throws JsonProcessingException {
+    RenderedActivity rendered = cached(activity.getId(), activity.getVersion());
+    if (rendered == null) {
+      byte[] json = MAPPER.writeValueAsBytes(activity);
+      rendered =
+          new RenderedActivity(
+              activity.getVersion(),
+              json,
+              "\"" + DigestUtils.md5DigestAsHex(json) + "\"",
+              System.currentTimeMillis() + ttl);
+      put(activity.getId(), rendered);
+    }
+    return rendered;
+  }
+
+  /**
+   * Drop the JSON of an activity that has changed
+   *
+   * @param activityId the id of the activity
+   */
+  public synchronized void invalidate(int activityId) {
+    activities.remove(activityId);
+  }
+
+  private synchronized RenderedActivity cached(int activityId, long version) {
+    RenderedActivity rendered = activities.get(activityId);
+    if (rendered == null) {
+      return null;
+    }
+    if (rendered.expiresAt < System.currentTimeMillis()) {
+      activities.remove(activityId);
+      return null;
+    }
+    return rendered.version == version ? rendered : null;
+  }
+
+  private synchronized void put(int activityId, RenderedActivity rendered) {
+    if (maxActivities <= 0 || ttl <= 0) {
+      return;
+    }
+    activities.put(activityId, rendered);
+  }
+
+  /** The JSON of an activity as rendered from one version of it */
+  public static class RenderedActivity {
+    private final long version;
+    private final byte[] json;
+    private final String etag;
+    private final long expiresAt;
+
+    private RenderedActivity(long version, byte[] json, String etag, long expiresAt) {
+      this.version = version;
+      this.json = json;
+      this.etag = etag;
+      this.expiresAt = expiresAt;
+    }
+
+    /** @return the JSON of the activity in UTF-8 */
+    public byte[] getJson() {
+      return json;
+    }
+
+    /** @return the strong ETag of the JSON, a quoted MD5 hash of it */
+    public String getEtag() {
+      return etag;
+    }
+  }
+}
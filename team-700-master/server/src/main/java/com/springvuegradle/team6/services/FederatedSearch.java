@@ -0,0 +1,111 @@
+package com.springvuegradle.team6.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs the sources of a search concurrently on a small bounded pool and collects what they find
+ * before their deadlines. Each source runs in its own read only transaction, since the search
+ * indexes are queried through the entity manager. A source that fails, cannot be queued because
+ * the pool is busy, or has not answered by its deadline is left out and reported as unavailable,
+ * so one slow source never holds up the others. Sources still running at their deadline are
+ * interrupted.
+ *
+ * <p>Each source is given search.federated.timeout.&lt;source&gt; milliseconds from when it is
+ * submitted, or search.federated.timeout if its own is not set.
+ */
+@Service
+public class FederatedSearch {
+  private static final int QUEUE_SIZE = 64;
+
+  private final ExecutorService executor;
+  private final TransactionTemplate transactionTemplate;
+  private final Environment environment;
+
+  /** How long in milliseconds a search waits for a source without a timeout of its own */
+  @Value("${search.federated.timeout:3000}")
+  private long timeout;
+
+  FederatedSearch(
+      PlatformTransactionManager transactionManager,
+      Environment environment,
+      @Value("${search.federated.threads:8}") int threads) {
+    this.environment = environment;
+    this.executor =
+        new ThreadPoolExecutor(
+            threads,
+            threads,
+            60,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE),
+            new ThreadPoolExecutor.AbortPolicy());
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.transactionTemplate.setReadOnly(true);
+  }
+
+  /**
+   * Runs the sources and waits for each of them until its deadline
+   *
+   * @param sources the queries to run by source name
+   * @return the results of the sources that answered in time, and the names of the others
+   */
+  public FederatedSearchResult search(Map<String, Supplier<Object>> sources) {
+    long submitted = System.nanoTime();
+    Map<String, Future<Object>> futures = new LinkedHashMap<>();
+    List<String> unavailable = new ArrayList<>();
+    for (Map.Entry<String, Supplier<Object>> source : sources.entrySet()) {
+      try {
+        futures.put(
+            source.getKey(),
+            executor.submit(() -> transactionTemplate.execute(status -> source.getValue().get())));
+      } catch (RejectedExecutionException e) {
+        unavailable.add(source.getKey());
+      }
+    }
+
+    Map<String, Object> results = new LinkedHashMap<>();
+    for (Map.Entry<String, Future<Object>> future : futures.entrySet()) {
+      long deadline = submitted + TimeUnit.MILLISECONDS.toNanos(timeout(future.getKey()));
+      try {
+        results.put(
+            future.getKey(),
+            future.getValue().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+      } catch (TimeoutException e) {
+        System.getLogger("SystemEvents")
+            .log(System.Logger.Level.WARNING, "Search source " + future.getKey() + " timed out");
+        future.getValue().cancel(true);
+        unavailable.add(future.getKey());
+      } catch (ExecutionException e) {
+        System.getLogger("SystemEvents")
+            .log(System.Logger.Level.WARNING, "Search source " + future.getKey() + " failed", e);
+        unavailable.add(future.getKey());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        future.getValue().cancel(true);
+        unavailable.add(future.getKey());
+      }
+    }
+    return new FederatedSearchResult(results, unavailable);
+  }
+
+  private long timeout(String source) {
+    return environment.getProperty("search.federated.timeout." + source, Long.class, timeout);
+  }
+
+  /** Stops the search threads when the application shuts down */
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,33 @@
+package com.springvuegradle.team6.services;
+
+import java.util.List;
+import java.util.Map;
+
+/** The results of each source of a federated search along with the sources that missed it */
+public class FederatedSearchResult {
+  private final Map<String, Object> results;
+  private final List<String> unavailable;
+
+  public FederatedSearchResult(Map<String, Object> results, List<String> unavailable) {
+    this.results = results;
+    this.unavailable = unavailable;
+  }
+
+  /**
+   * The results of the sources that answered in time
+   *
+   * @return the results by source name
+   */
+  public Map<String, Object> getResults() {
+    return results;
+  }
+
+  /**
+   * The sources that failed, were turned away by a full pool or missed the deadline
+   *
+   * @return the names of the sources, empty if every source answered
+   */
+  public List<String> getUnavailable() {
+    return unavailable;
+  }
+}
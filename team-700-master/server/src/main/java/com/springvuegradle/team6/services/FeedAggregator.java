@@ -0,0 +1,89 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.responses.FeedResponse;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collapses bursts of updates to the same activity in a home feed. Feeds are added newest first,
+ * and a run of consecutive update feeds of the same activity that fall within the window of the
+ * newest one becomes a single feed carrying the number of updates and the time of the oldest.
+ * Only consecutive feeds are collapsed, so each aggregated feed stands for a contiguous range of
+ * the underlying feed and pages of aggregated feeds can still be continued with a cursor.
+ */
+public class FeedAggregator {
+  private final Duration window;
+
+  private final List<FeedResponse> feeds = new ArrayList<>();
+  private final List<Integer> lastIndexes = new ArrayList<>();
+  private int added;
+
+  private FeedResponse run;
+  private LocalDateTime runStart;
+
+  /**
+   * Constructor for an aggregator
+   *
+   * @param window how far apart the newest and oldest updates collapsed into one feed can be
+   */
+  public FeedAggregator(Duration window) {
+    this.window = window;
+  }
+
+  /**
+   * Adds the next feed, which must not be newer than any feed added before it. The feed itself is
+   * left untouched.
+   *
+   * @param feed the next feed
+   */
+  public void add(FeedResponse feed) {
+    LocalDateTime time = LocalDateTime.parse(feed.dateTime);
+    if (run != null
+        && feed.edit
+        && run.activityId.equals(feed.activityId)
+        && !time.isBefore(runStart.minus(window))) {
+      run.count = run.count == null ? 2 : run.count + 1;
+      run.firstDateTime = feed.dateTime;
+      lastIndexes.set(lastIndexes.size() - 1, added);
+    } else {
+      FeedResponse copy = new FeedResponse(feed.activityId, feed.message, feed.dateTime);
+      copy.edit = feed.edit;
+      feeds.add(copy);
+      lastIndexes.add(added);
+      run = feed.edit ? copy : null;
+      runStart = time;
+    }
+    added++;
+  }
+
+  /**
+   * Number of aggregated feeds so far. Every aggregated feed but the last is complete.
+   *
+   * @return the number of aggregated feeds
+   */
+  public int size() {
+    return feeds.size();
+  }
+
+  /**
+   * The aggregated feeds so far
+   *
+   * @return the aggregated feeds, newest first
+   */
+  public List<FeedResponse> getFeeds() {
+    return feeds;
+  }
+
+  /**
+   * Position, in the order they were added, of the oldest feed collapsed into an aggregated feed
+   *
+   * @param index the index of the aggregated feed
+   * @return the position of the oldest feed it stands for, counting from 0
+   */
+  public int getLastIndex(int index) {
+    return lastIndexes.get(index);
+  }
+}
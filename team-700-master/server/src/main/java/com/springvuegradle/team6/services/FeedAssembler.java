@@ -0,0 +1,241 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.ActivityHistory;
+import com.springvuegradle.team6.models.ActivityHistoryRepository;
+import com.springvuegradle.team6.models.SubscriptionHistory;
+import com.springvuegradle.team6.models.SubscriptionHistoryRepository;
+import com.springvuegradle.team6.responses.FeedResponse;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Builds home feeds directly from the subscription and activity history tables, for when the
+ * materialised feed store is not used.
+ */
+@Service
+public class FeedAssembler {
+  private static final int SUBSCRIBED = 0;
+  private static final int UNSUBSCRIBED = 1;
+  private static final int UPDATED = 2;
+
+  /**
+   * Newest feed first, feeds with the same time ordered by kind and then row id the way
+   * SubscriptionHistoryRepository.HOME_FEED_QUERY orders them, so pages never repeat or skip them
+   */
+  private static final Comparator<FeedResponse> NEWEST_FIRST =
+      Comparator.comparing((FeedResponse feed) -> feed.dateTime)
+          .thenComparingInt(feed -> feed.kind)
+          .thenComparingInt(feed -> feed.rowId)
+          .reversed();
+
+  private final ActivityHistoryRepository activityHistoryRepository;
+  private final SubscriptionHistoryRepository subscriptionHistoryRepository;
+
+  FeedAssembler(
+      ActivityHistoryRepository activityHistoryRepository,
+      SubscriptionHistoryRepository subscriptionHistoryRepository) {
+    this.activityHistoryRepository = activityHistoryRepository;
+    this.subscriptionHistoryRepository = subscriptionHistoryRepository;
+  }
+
+  /**
+   * Get a page of the home feed of a profile with a single query, which merges, sorts and
+   * paginates the subscription and activity history rows in the database
+   *
+   * @param profileId the profile that the feed belongs to
+   * @param offset the number of feeds to skip, ignored when there is no limit
+   * @param limit the number of feeds to return, or null to return all of them
+   * @return the requested page of the home feed
+   */
+  public List<FeedResponse> queryFeed(int profileId, int offset, Integer limit) {
+    List<Object[]> rows;
+    if (limit == null) {
+      rows = subscriptionHistoryRepository.findHomeFeed(profileId);
+    } else {
+      rows = subscriptionHistoryRepository.findHomeFeed(profileId, limit, offset);
+    }
+
+    List<FeedResponse> feeds = new ArrayList<>();
+    for (Object[] row : rows) {
+      feeds.add(
+          new FeedResponse(
+              ((Number) row[0]).intValue(), (String) row[1], toLocalDateTime(row[2]).toString()));
+    }
+    return feeds;
+  }
+
+  /**
+   * Get a page of the home feed of a profile by loading the activity history of each subscription
+   * separately and merging them. Only the newest offset + limit entries of each subscription are
+   * loaded, and the merge stops once the page has been filled.
+   *
+   * @param profileId the profile that the feed belongs to
+   * @param offset the number of feeds to skip, ignored when there is no limit
+   * @param limit the number of feeds to return, or null to return all of them
+   * @return the requested page of the home feed
+   */
+  public List<FeedResponse> assembleFeed(int profileId, int offset, Integer limit) {
+    Set<SubscriptionHistory> subscriptionHistorySet =
+        subscriptionHistoryRepository.findByProfile_id(profileId);
+
+    Integer needed = limit == null ? null : offset + limit;
+    List<List<FeedResponse>> streams = new ArrayList<>();
+    if (subscriptionHistorySet != null) {
+      for (SubscriptionHistory subscriptionHistory : subscriptionHistorySet) {
+        streams.add(extractFeeds(subscriptionHistory, needed));
+      }
+    }
+    return mergeFeeds(streams, offset, limit);
+  }
+
+  /**
+   * Merges feeds that are each already newest first into a single page, newest first. Feeds with
+   * the same time are ordered by their kind and row id. The newest remaining feed of every stream
+   * is kept in a priority queue, so producing a page takes (offset + limit) * log(number of
+   * streams) steps however long the streams are.
+   *
+   * @param streams the feeds of each subscription, each newest first
+   * @param offset the number of feeds to skip, ignored when there is no limit
+   * @param limit the number of feeds to return, or null to return all of them
+   * @return the requested page of the merged feeds
+   */
+  public static List<FeedResponse> mergeFeeds(
+      List<List<FeedResponse>> streams, int offset, Integer limit) {
+    PriorityQueue<FeedStream> heads =
+        new PriorityQueue<>(
+            Math.max(1, streams.size()), (o1, o2) -> NEWEST_FIRST.compare(o1.peek(), o2.peek()));
+    for (List<FeedResponse> stream : streams) {
+      if (!stream.isEmpty()) {
+        heads.add(new FeedStream(stream));
+      }
+    }
+
+    int skip = limit == null ? 0 : offset;
+    List<FeedResponse> page = new ArrayList<>();
+    int produced = 0;
+    while (!heads.isEmpty() && (limit == null || produced < offset + limit)) {
+      FeedStream stream = heads.poll();
+      FeedResponse feed = stream.next();
+      if (produced >= skip) {
+        page.add(feed);
+      }
+      produced++;
+      if (stream.hasNext()) {
+        heads.add(stream);
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Extracts the feed posts of a subscription newest first, which are the unsubscribe post if it
+   * has ended, the activity updates made while subscribed and the subscribe post
+   *
+   * @param subscriptionHistory the subscription to extract the feeds of
+   * @param needed the number of activity updates needed from the subscription, or null for all
+   * @return the list of feeds of the subscription, newest first
+   */
+  private List<FeedResponse> extractFeeds(SubscriptionHistory subscriptionHistory, Integer needed) {
+    List<FeedResponse> feeds = new ArrayList<>();
+    if (subscriptionHistory.getEndDateTime() != null) {
+      feeds.add(
+          feed(
+              subscriptionHistory.getActivity().getId(),
+              "Unsubscribed to the activity: "
+                  + subscriptionHistory.getActivity().getActivityName()
+                  + ".",
+              subscriptionHistory.getEndDateTime(),
+              UNSUBSCRIBED,
+              subscriptionHistory.getId()));
+    }
+
+    List<ActivityHistory> activityHistories;
+    if (needed == null) {
+      activityHistories =
+          activityHistoryRepository.getActivityHistoryBetweenSubscribeStartEndDateTimeAndActivityId(
+              subscriptionHistory.getActivity().getId(),
+              subscriptionHistory.getStartDateTime(),
+              subscriptionHistory.getEndDateTime());
+    } else {
+      activityHistories =
+          activityHistoryRepository
+              .getLatestActivityHistoryBetweenSubscribeStartEndDateTimeAndActivityId(
+                  subscriptionHistory.getActivity().getId(),
+                  subscriptionHistory.getStartDateTime(),
+                  subscriptionHistory.getEndDateTime(),
+                  needed);
+    }
+    for (ActivityHistory activityHistory : activityHistories) {
+      feeds.add(
+          feed(
+              activityHistory.getActivity().getId(),
+              activityHistory.getMessage(),
+              activityHistory.getTimeDate(),
+              UPDATED,
+              activityHistory.getId()));
+    }
+
+    feeds.add(
+        feed(
+            subscriptionHistory.getActivity().getId(),
+            "Subscribed to the activity: "
+                + subscriptionHistory.getActivity().getActivityName()
+                + ".",
+            subscriptionHistory.getStartDateTime(),
+            SUBSCRIBED,
+            subscriptionHistory.getId()));
+    feeds.sort(NEWEST_FIRST);
+    return feeds;
+  }
+
+  private static FeedResponse feed(
+      int activityId, String message, LocalDateTime timeDate, int kind, int rowId) {
+    FeedResponse feed = new FeedResponse(activityId, message, timeDate.toString());
+    feed.kind = kind;
+    feed.rowId = rowId;
+    return feed;
+  }
+
+  /**
+   * Date time columns are returned by native queries as timestamps by some drivers and as local
+   * date times by others
+   *
+   * @param value the date time column value
+   * @return the value as a LocalDateTime
+   */
+  private static LocalDateTime toLocalDateTime(Object value) {
+    if (value instanceof Timestamp) {
+      return ((Timestamp) value).toLocalDateTime();
+    }
+    return (LocalDateTime) value;
+  }
+
+  /** A feed stream being merged, with the position of its next feed */
+  private static class FeedStream {
+    private final List<FeedResponse> feeds;
+    private int next;
+
+    FeedStream(List<FeedResponse> feeds) {
+      this.feeds = feeds;
+    }
+
+    FeedResponse peek() {
+      return feeds.get(next);
+    }
+
+    FeedResponse next() {
+      return feeds.get(next++);
+    }
+
+    boolean hasNext() {
+      return next < feeds.size();
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.FeedEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a home feed used for keyset pagination. A cursor is the time and id of the last feed
+ * entry a client has seen, and is handed to clients as an opaque url safe token.
+ */
+public class FeedCursor {
+  private static final String SEPARATOR = "|";
+
+  private final LocalDateTime timeDate;
+  private final int id;
+
+  public FeedCursor(LocalDateTime timeDate, int id) {
+    this.timeDate = timeDate;
+    this.id = id;
+  }
+
+  /**
+   * Creates the cursor pointing just after the given feed entry
+   *
+   * @param entry the last feed entry of a page
+   * @return the cursor of the next page
+   */
+  public static FeedCursor after(FeedEntry entry) {
+    return new FeedCursor(entry.getTimeDate(), entry.getId());
+  }
+
+  /**
+   * Decodes a token previously returned by encode
+   *
+   * @param token the opaque token sent by the client
+   * @return the decoded cursor, or null if the token is not a valid cursor
+   */
+  public static FeedCursor decode(String token) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      int separator = decoded.indexOf(SEPARATOR);
+      if (separator == -1) {
+        return null;
+      }
+      return new FeedCursor(
+          LocalDateTime.parse(decoded.substring(0, separator)),
+          Integer.parseInt(decoded.substring(separator + 1)));
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Encodes this cursor as an opaque token to be sent to the client
+   *
+   * @return the url safe token
+   */
+  public String encode() {
+    String raw = timeDate.toString() + SEPARATOR + id;
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  public LocalDateTime getTimeDate() {
+    return timeDate;
+  }
+
+  public int getId() {
+    return id;
+  }
+}
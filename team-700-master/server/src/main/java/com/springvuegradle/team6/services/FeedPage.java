@@ -0,0 +1,29 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.responses.FeedResponse;
+
+import java.util.List;
+
+/** A page of a home feed along with the cursor of the page that follows it */
+public class FeedPage {
+  private final List<FeedResponse> feeds;
+  private final FeedCursor next;
+
+  public FeedPage(List<FeedResponse> feeds, FeedCursor next) {
+    this.feeds = feeds;
+    this.next = next;
+  }
+
+  public List<FeedResponse> getFeeds() {
+    return feeds;
+  }
+
+  /**
+   * The cursor of the following page
+   *
+   * @return the cursor, or null if this is the last page
+   */
+  public FeedCursor getNext() {
+    return next;
+  }
+}
@@ -0,0 +1,113 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.FeedEntry;
+import com.springvuegradle.team6.responses.FeedResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Pushes new home feed entries to the clients streaming the home feed. Open streams are held as
+ * asynchronous SseEmitters, so an idle stream does not hold a servlet thread, and events are sent
+ * from a small bounded pool so a slow client never blocks the request that changed the feed.
+ */
+@Service
+public class HomeFeedBroadcaster {
+  private static final int SEND_THREADS = 4;
+  private static final int SEND_QUEUE_SIZE = 10000;
+
+  private final Map<Integer, List<SseEmitter>> emitters = new ConcurrentHashMap<>();
+
+  private final ExecutorService sendExecutor =
+      new ThreadPoolExecutor(
+          SEND_THREADS,
+          SEND_THREADS,
+          60,
+          TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(SEND_QUEUE_SIZE),
+          new ThreadPoolExecutor.DiscardOldestPolicy());
+
+  /** How long in milliseconds a stream stays open before the client has to reconnect */
+  @Value("${feed.stream.timeout:1800000}")
+  private long streamTimeout;
+
+  /**
+   * Opens a new stream of the home feed of a profile
+   *
+   * @param profileId the profile whose home feed is streamed
+   * @return the emitter to return from the request handler
+   */
+  public SseEmitter subscribe(int profileId) {
+    SseEmitter emitter = new SseEmitter(streamTimeout);
+    emitters.compute(
+        profileId,
+        (id, profileEmitters) -> {
+          if (profileEmitters == null) {
+            profileEmitters = new CopyOnWriteArrayList<>();
+          }
+          profileEmitters.add(emitter);
+          return profileEmitters;
+        });
+
+    emitter.onCompletion(() -> remove(profileId, emitter));
+    emitter.onTimeout(() -> remove(profileId, emitter));
+    emitter.onError(e -> remove(profileId, emitter));
+    return emitter;
+  }
+
+  /**
+   * Sends a feed entry to every open stream of its profile once the transaction that wrote it has
+   * committed
+   *
+   * @param entry the feed entry that was written
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onFeedEntryWritten(FeedEntry entry) {
+    List<SseEmitter> profileEmitters = emitters.get(entry.getProfileId());
+    if (profileEmitters == null || profileEmitters.isEmpty()) {
+      return;
+    }
+
+    FeedResponse feed = HomeFeedStore.toFeedResponse(entry);
+    for (SseEmitter emitter : profileEmitters) {
+      sendExecutor.execute(() -> send(entry.getProfileId(), emitter, feed));
+    }
+  }
+
+  private void send(int profileId, SseEmitter emitter, FeedResponse feed) {
+    try {
+      emitter.send(SseEmitter.event().name("feed").data(feed, MediaType.APPLICATION_JSON));
+    } catch (IOException | IllegalStateException e) {
+      remove(profileId, emitter);
+    }
+  }
+
+  private void remove(int profileId, SseEmitter emitter) {
+    emitters.computeIfPresent(
+        profileId,
+        (id, profileEmitters) -> {
+          profileEmitters.remove(emitter);
+          return profileEmitters.isEmpty() ? null : profileEmitters;
+        });
+  }
+
+  /** Closes every open stream and stops the send threads when the application shuts down */
+  @PreDestroy
+  public void shutdown() {
+    sendExecutor.shutdownNow();
+    for (List<SseEmitter> profileEmitters : emitters.values()) {
+      for (SseEmitter emitter : profileEmitters) {
+        emitter.complete();
+      }
+    }
+    emitters.clear();
+  }
+}
@@ -0,0 +1,183 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.FeedEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of home feed pages keyed by profile id. Most home feed reads are repeats with
+ * nothing new in between, so they are served from memory until the feed of the profile changes.
+ * The least recently read profiles are evicted once there are more than feed.cache.size of them,
+ * and a profile's pages expire feed.cache.ttl milliseconds after they were first cached.
+ *
+ * <p>A profile's pages are invalidated once the transaction that wrote a feed entry for it has
+ * committed, which happens exactly when activity history is saved for an activity it follows or
+ * its subscription history changes. A read that started before the commit may still see the old
+ * feed and try to cache it after the invalidation, so every invalidation also bumps a generation
+ * of the profile. Readers take the generation before reading the feed and pass it to put, which
+ * drops the page if the generation has moved on. Generations are kept in a fixed number of slots
+ * shared by profile id, so a change to one profile at worst stops another from caching a page.
+ */
+@Service
+public class HomeFeedCache {
+  /** Maximum number of distinct pages cached per profile */
+  private static final int MAX_PAGES_PER_PROFILE = 16;
+
+  /** Number of generation slots the profiles are spread over */
+  private static final int GENERATION_SLOTS = 1024;
+
+  private final int maxProfiles;
+  private final long ttl;
+
+  private final LinkedHashMap<Integer, CachedFeed> feeds;
+  private final long[] generations = new long[GENERATION_SLOTS];
+
+  private long hits;
+  private long misses;
+  private long evictions;
+  private long invalidations;
+
+  HomeFeedCache(
+      @Value("${feed.cache.size:1000}") int maxProfiles,
+      @Value("${feed.cache.ttl:60000}") long ttl) {
+    this.maxProfiles = maxProfiles;
+    this.ttl = ttl;
+    this.feeds =
+        new LinkedHashMap<Integer, CachedFeed>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<Integer, CachedFeed> eldest) {
+            if (size() > HomeFeedCache.this.maxProfiles) {
+              evictions++;
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /**
+   * Get a cached page of the home feed of a profile
+   *
+   * @param profileId the profile that the feed belongs to
+   * @param page the key of the page, made from the paging parameters of the request
+   * @return the cached response body, or null if the page is not cached
+   */
+  public synchronized Object get(int profileId, String page) {
+    CachedFeed feed = feeds.get(profileId);
+    if (feed != null && feed.expiresAt < System.currentTimeMillis()) {
+      feeds.remove(profileId);
+      evictions++;
+      feed = null;
+    }
+    Object body = feed == null ? null : feed.pages.get(page);
+    if (body == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return body;
+  }
+
+  /**
+   * Get the generation of the home feed of a profile, to be taken before the feed is read
+   *
+   * @param profileId the profile that the feed belongs to
+   * @return the generation to pass to put with the page read
+   */
+  public synchronized long generation(int profileId) {
+    return generations[slot(profileId)];
+  }
+
+  /**
+   * Cache a page of the home feed of a profile, unless the feed has been invalidated since the
+   * given generation was taken
+   *
+   * @param profileId the profile that the feed belongs to
+   * @param page the key of the page, made from the paging parameters of the request
+   * @param body the response body of the page
+   * @param generation the generation of the feed taken before the page was read
+   */
+  public synchronized void put(int profileId, String page, Object body, long generation) {
+    if (maxProfiles <= 0 || generations[slot(profileId)] != generation) {
+      return;
+    }
+    CachedFeed feed = feeds.get(profileId);
+    if (feed == null) {
+      feed = new CachedFeed(System.currentTimeMillis() + ttl);
+      feeds.put(profileId, feed);
+    }
+    feed.pages.put(page, body);
+  }
+
+  /**
+   * Drop every cached page of the home feed of a profile
+   *
+   * @param profileId the profile whose feed changed
+   */
+  public synchronized void invalidate(int profileId) {
+    generations[slot(profileId)]++;
+    if (feeds.remove(profileId) != null) {
+      invalidations++;
+    }
+  }
+
+  /** Drop every cached page of every profile */
+  public synchronized void clear() {
+    for (int i = 0; i < GENERATION_SLOTS; i++) {
+      generations[i]++;
+    }
+    invalidations += feeds.size();
+    feeds.clear();
+  }
+
+  /**
+   * Invalidates the feed of the profile a feed entry was written for, once the transaction that
+   * wrote it has committed so a read after the commit cannot be served the feed from before it
+   *
+   * @param entry the feed entry that was written
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onFeedEntryWritten(FeedEntry entry) {
+    invalidate(entry.getProfileId());
+  }
+
+  /**
+   * Counters of the cache since the application started
+   *
+   * @return the hits, misses, evictions and invalidations of the cache and its current size
+   */
+  public synchronized Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("hits", hits);
+    stats.put("misses", misses);
+    stats.put("evictions", evictions);
+    stats.put("invalidations", invalidations);
+    stats.put("size", (long) feeds.size());
+    return stats;
+  }
+
+  private static int slot(int profileId) {
+    return Math.floorMod(profileId, GENERATION_SLOTS);
+  }
+
+  /** The cached pages of one profile */
+  private static class CachedFeed {
+    private final long expiresAt;
+
+    private final Map<String, Object> pages =
+        new LinkedHashMap<String, Object>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+            return size() > MAX_PAGES_PER_PROFILE;
+          }
+        };
+
+    CachedFeed(long expiresAt) {
+      this.expiresAt = expiresAt;
+    }
+  }
+}
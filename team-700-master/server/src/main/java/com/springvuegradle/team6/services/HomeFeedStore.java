@@ -0,0 +1,243 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.*;
+import com.springvuegradle.team6.responses.FeedResponse;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Materialised home feed. Feed entries are fanned out to each subscribed profile when activity
+ * history or subscription history is saved, so reading a page of a home feed is a single indexed
+ * query on the feed_entry table. Each new entry is also published as an application event for
+ * the home feed streams.
+ */
+@Service
+public class HomeFeedStore {
+  /** Most feed entries read to fill one page of aggregated feeds */
+  private static final int MAX_ENTRIES_PER_PAGE = 1000;
+
+  private final FeedEntryRepository feedEntryRepository;
+  private final ActivityHistoryRepository activityHistoryRepository;
+  private final SubscriptionHistoryRepository subscriptionHistoryRepository;
+  private final ApplicationEventPublisher eventPublisher;
+
+  HomeFeedStore(
+      FeedEntryRepository feedEntryRepository,
+      ActivityHistoryRepository activityHistoryRepository,
+      SubscriptionHistoryRepository subscriptionHistoryRepository,
+      ApplicationEventPublisher eventPublisher) {
+    this.feedEntryRepository = feedEntryRepository;
+    this.activityHistoryRepository = activityHistoryRepository;
+    this.subscriptionHistoryRepository = subscriptionHistoryRepository;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Get a page of the home feed of a profile, most recent first
+   *
+   * @param profileId the profile that the feed belongs to
+   * @param offset the number of feeds to skip, ignored when there is no limit
+   * @param limit the number of feeds to return, or null to return all of them
+   * @return the requested page of the home feed
+   */
+  public List<FeedEntry> getFeed(int profileId, int offset, Integer limit) {
+    if (limit == null) {
+      return feedEntryRepository.findFeed(profileId);
+    }
+    return feedEntryRepository.findFeed(profileId, limit, offset);
+  }
+
+  /**
+   * Get the page of the home feed of a profile that comes after the given cursor, most recent
+   * first. Only the requested page is read from the index, however deep the cursor is.
+   *
+   * @param profileId the profile that the feed belongs to
+   * @param before the cursor returned with the previous page
+   * @param limit the number of feeds to return
+   * @return the requested page of the home feed
+   */
+  public List<FeedEntry> getFeedBefore(int profileId, FeedCursor before, int limit) {
+    return feedEntryRepository.findFeedBefore(
+        profileId, before.getTimeDate(), before.getId(), limit);
+  }
+
+  /**
+   * Get a page of the home feed of a profile with bursts of updates collapsed by a FeedAggregator.
+   * Entries are read in chunks until the page holds limit aggregated feeds, so collapsed updates
+   * do not leave the page short.
+   *
+   * @param profileId the profile that the feed belongs to
+   * @param before the cursor returned with the previous page, or null for the first page
+   * @param limit the number of aggregated feeds to return
+   * @param window how far apart the updates collapsed into one feed can be
+   * @return the requested page, with the cursor of the next page if the feed continues
+   */
+  public FeedPage getAggregatedFeed(
+      int profileId, FeedCursor before, int limit, Duration window) {
+    FeedAggregator aggregator = new FeedAggregator(window);
+    List<FeedEntry> read = new ArrayList<>();
+    List<FeedEntry> chunk;
+    if (before == null) {
+      chunk = feedEntryRepository.findFeed(profileId, limit + 1, 0);
+    } else {
+      chunk = getFeedBefore(profileId, before, limit + 1);
+    }
+    while (true) {
+      for (FeedEntry entry : chunk) {
+        read.add(entry);
+        aggregator.add(toFeedResponse(entry));
+      }
+      if (aggregator.size() > limit
+          || chunk.size() <= limit
+          || read.size() >= MAX_ENTRIES_PER_PAGE) {
+        break;
+      }
+      chunk = getFeedBefore(profileId, FeedCursor.after(read.get(read.size() - 1)), limit + 1);
+    }
+
+    List<FeedResponse> feeds = aggregator.getFeeds();
+    if (aggregator.size() > limit) {
+      FeedEntry last = read.get(aggregator.getLastIndex(limit - 1));
+      return new FeedPage(new ArrayList<>(feeds.subList(0, limit)), FeedCursor.after(last));
+    }
+    if (chunk.size() > limit) {
+      return new FeedPage(feeds, FeedCursor.after(read.get(read.size() - 1)));
+    }
+    return new FeedPage(feeds, null);
+  }
+
+  /**
+   * A version of the home feed of a profile that changes whenever a feed entry is written or
+   * deleted for it. Entries only ever get new ids, so the number of entries and the largest id
+   * together identify the state of the feed.
+   *
+   * @param profileId the profile that the feed belongs to
+   * @return the version of the home feed
+   */
+  public String getWatermark(int profileId) {
+    return feedEntryRepository.findWatermark(profileId);
+  }
+
+  /**
+   * Converts feed entries into the responses sent to the client
+   *
+   * @param entries the feed entries
+   * @return the feed responses in the same order
+   */
+  public static List<FeedResponse> toFeedResponses(List<FeedEntry> entries) {
+    List<FeedResponse> feeds = new ArrayList<>();
+    for (FeedEntry entry : entries) {
+      feeds.add(toFeedResponse(entry));
+    }
+    return feeds;
+  }
+
+  /**
+   * The feed response of a feed entry, shared by the feed reads and the feed streams so both
+   * describe an entry the same way
+   *
+   * @param entry the feed entry
+   * @return the feed response
+   */
+  static FeedResponse toFeedResponse(FeedEntry entry) {
+    FeedResponse feed =
+        new FeedResponse(entry.getActivityId(), entry.getMessage(), entry.getTimeDate().toString());
+    feed.edit = entry.isEdit();
+    return feed;
+  }
+
+  /**
+   * Fans a saved activity history row out to the feeds of every profile whose subscription to the
+   * activity was active at the time of the change
+   *
+   * @param activityHistory the activity history that was saved
+   */
+  @EventListener
+  @Transactional
+  public void onActivityHistorySaved(ActivityHistory activityHistory) {
+    feedEntryRepository.deleteByActivityHistoryId(activityHistory.getId());
+
+    List<SubscriptionHistory> subscriptions =
+        subscriptionHistoryRepository.findCovering(
+            activityHistory.getActivity().getId(), activityHistory.getTimeDate());
+    List<FeedEntry> entries = new ArrayList<>();
+    for (SubscriptionHistory subscriptionHistory : subscriptions) {
+      entries.add(new FeedEntry(subscriptionHistory, activityHistory));
+    }
+    feedEntryRepository.saveAll(entries);
+    for (FeedEntry entry : entries) {
+      eventPublisher.publishEvent(entry);
+    }
+  }
+
+  /**
+   * Rewrites the feed entries of a saved subscription, which are the subscribe and unsubscribe
+   * entries and every activity history row that falls between the start and end of the
+   * subscription. Only the latest subscribe or unsubscribe entry is published, the backfilled
+   * history is not news to the profile.
+   *
+   * @param subscriptionHistory the subscription history that was saved
+   */
+  @EventListener
+  @Transactional
+  public void onSubscriptionHistorySaved(SubscriptionHistory subscriptionHistory) {
+    FeedEntry latest = writeSubscription(subscriptionHistory);
+    eventPublisher.publishEvent(latest);
+  }
+
+  /**
+   * Writes the feed entries of a subscription, replacing any it already had
+   *
+   * @param subscriptionHistory the subscription history to write the entries of
+   * @return the entry of the latest change to the subscription, its end if it has ended
+   */
+  private FeedEntry writeSubscription(SubscriptionHistory subscriptionHistory) {
+    feedEntryRepository.deleteBySubscriptionHistoryId(subscriptionHistory.getId());
+
+    Activity activity = subscriptionHistory.getActivity();
+    List<FeedEntry> entries = new ArrayList<>();
+    List<ActivityHistory> activityHistories =
+        activityHistoryRepository.getActivityHistoryBetweenSubscribeStartEndDateTimeAndActivityId(
+            activity.getId(),
+            subscriptionHistory.getStartDateTime(),
+            subscriptionHistory.getEndDateTime());
+    for (ActivityHistory activityHistory : activityHistories) {
+      entries.add(new FeedEntry(subscriptionHistory, activityHistory));
+    }
+
+    FeedEntry latest =
+        new FeedEntry(
+            subscriptionHistory,
+            "Subscribed to the activity: " + activity.getActivityName() + ".",
+            subscriptionHistory.getStartDateTime());
+    entries.add(latest);
+    if (subscriptionHistory.getEndDateTime() != null) {
+      latest =
+          new FeedEntry(
+              subscriptionHistory,
+              "Unsubscribed to the activity: " + activity.getActivityName() + ".",
+              subscriptionHistory.getEndDateTime());
+      entries.add(latest);
+    }
+    feedEntryRepository.saveAll(entries);
+    return latest;
+  }
+
+  /**
+   * Rebuilds the whole store from the subscription and activity history tables. Used to populate
+   * the store the first time it is enabled on an existing database.
+   */
+  @Transactional
+  public void rebuild() {
+    feedEntryRepository.deleteAllInBatch();
+    for (SubscriptionHistory subscriptionHistory : subscriptionHistoryRepository.findAll()) {
+      writeSubscription(subscriptionHistory);
+    }
+  }
+}
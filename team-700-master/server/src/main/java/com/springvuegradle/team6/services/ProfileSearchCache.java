@@ -0,0 +1,90 @@
+package com.springvuegradle.team6.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Short-lived cache of the total number of profiles each search matched. A profile search page
+ * already knows the total from the same query execution, so it is kept here and the count request
+ * the client sends for the same search straight after is answered without searching again. Totals
+ * expire search.count.cache.ttl milliseconds after they were cached, and the least recently used
+ * searches are evicted once there are more than search.count.cache.size of them.
+ */
+@Service
+public class ProfileSearchCache {
+  private final int maxSearches;
+  private final long ttl;
+
+  private final LinkedHashMap<String, CachedCount> counts;
+
+  ProfileSearchCache(
+      @Value("${search.count.cache.size:1000}") int maxSearches,
+      @Value("${search.count.cache.ttl:10000}") long ttl) {
+    this.maxSearches = maxSearches;
+    this.ttl = ttl;
+    this.counts =
+        new LinkedHashMap<String, CachedCount>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedCount> eldest) {
+            return size() > ProfileSearchCache.this.maxSearches;
+          }
+        };
+  }
+
+  /**
+   * Builds the key of a search from its parameters, leaving out the paging parameters
+   *
+   * @param field the field searched on, fullname or nickname
+   * @param terms the searched terms
+   * @param activityTypes the activity types searched for
+   * @param method the method used to combine the activity types
+   * @return the key of the search
+   */
+  public static String key(String field, String terms, String activityTypes, String method) {
+    return field + "=" + terms + "&activity=" + activityTypes + "&method=" + method;
+  }
+
+  /**
+   * Get the cached total of a search
+   *
+   * @param search the key of the search
+   * @return the total number of matching profiles, or null if it is not cached
+   */
+  public synchronized Integer get(String search) {
+    CachedCount count = counts.get(search);
+    if (count == null) {
+      return null;
+    }
+    if (count.expiresAt < System.currentTimeMillis()) {
+      counts.remove(search);
+      return null;
+    }
+    return count.total;
+  }
+
+  /**
+   * Cache the total of a search
+   *
+   * @param search the key of the search
+   * @param total the total number of matching profiles
+   */
+  public synchronized void put(String search, int total) {
+    if (ttl <= 0) {
+      return;
+    }
+    counts.put(search, new CachedCount(total, System.currentTimeMillis() + ttl));
+  }
+
+  private static class CachedCount {
+    private final int total;
+    private final long expiresAt;
+
+    private CachedCount(int total, long expiresAt) {
+      this.total = total;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
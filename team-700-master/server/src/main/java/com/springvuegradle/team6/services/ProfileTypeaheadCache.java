@@ -0,0 +1,91 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.responses.SearchProfileResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small cache of profile type-ahead results for hot prefixes. Many users type the same first few
+ * letters, so the results of the most recently typed prefixes are kept in memory. Results expire
+ * search.typeahead.cache.ttl milliseconds after they were cached, so new and renamed profiles
+ * show up shortly after, and the least recently typed prefixes are evicted once there are more
+ * than search.typeahead.cache.size of them.
+ */
+@Service
+public class ProfileTypeaheadCache {
+  private final int maxPrefixes;
+  private final long ttl;
+
+  private final LinkedHashMap<String, CachedResults> results;
+
+  ProfileTypeaheadCache(
+      @Value("${search.typeahead.cache.size:500}") int maxPrefixes,
+      @Value("${search.typeahead.cache.ttl:30000}") long ttl) {
+    this.maxPrefixes = maxPrefixes;
+    this.ttl = ttl;
+    this.results =
+        new LinkedHashMap<String, CachedResults>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, CachedResults> eldest) {
+            return size() > ProfileTypeaheadCache.this.maxPrefixes;
+          }
+        };
+  }
+
+  /**
+   * Builds the key of a type-ahead request, so prefixes that only differ in case and surrounding
+   * spaces share their results
+   *
+   * @param prefix the words typed so far
+   * @param limit the number of results requested
+   * @return the key of the request
+   */
+  public static String key(String prefix, int limit) {
+    return prefix.trim().toLowerCase() + "&limit=" + limit;
+  }
+
+  /**
+   * Get the cached results of a prefix
+   *
+   * @param key the key of the request
+   * @return the results, or null if they are not cached
+   */
+  public synchronized List<SearchProfileResponse> get(String key) {
+    CachedResults cached = results.get(key);
+    if (cached == null) {
+      return null;
+    }
+    if (cached.expiresAt < System.currentTimeMillis()) {
+      results.remove(key);
+      return null;
+    }
+    return cached.profiles;
+  }
+
+  /**
+   * Cache the results of a prefix
+   *
+   * @param key the key of the request
+   * @param profiles the results
+   */
+  public synchronized void put(String key, List<SearchProfileResponse> profiles) {
+    if (ttl <= 0) {
+      return;
+    }
+    results.put(key, new CachedResults(profiles, System.currentTimeMillis() + ttl));
+  }
+
+  private static class CachedResults {
+    private final List<SearchProfileResponse> profiles;
+    private final long expiresAt;
+
+    private CachedResults(List<SearchProfileResponse> profiles, long expiresAt) {
+      this.profiles = profiles;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
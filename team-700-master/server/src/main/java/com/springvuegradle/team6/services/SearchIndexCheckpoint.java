@@ -0,0 +1,72 @@
+package com.springvuegradle.team6.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Records when the application last shut down cleanly with its search indexes up to date. The
+ * checkpoint is a file next to the indexes on disk, holding the database time of the shutdown. It
+ * is taken away as soon as it is read at startup, so after a crash there is no checkpoint and the
+ * indexes are rebuilt in full. Indexes kept on the heap are lost on shutdown, so no checkpoint is
+ * ever kept for them.
+ */
+@Service
+public class SearchIndexCheckpoint {
+  private static final String FILE_NAME = "index.checkpoint";
+
+  private final boolean persistent;
+  private final Path file;
+
+  SearchIndexCheckpoint(
+      @Value("${spring.jpa.properties.hibernate.search.default.directory_provider:filesystem}")
+          String directoryProvider,
+      @Value("${spring.jpa.properties.hibernate.search.default.indexBase:.}") String indexBase) {
+    this.persistent = directoryProvider.equals("filesystem");
+    this.file = Paths.get(indexBase, FILE_NAME);
+  }
+
+  /**
+   * Reads and removes the checkpoint
+   *
+   * @return the database time of the last clean shutdown, or null if there is no usable checkpoint
+   */
+  public LocalDateTime take() {
+    if (!persistent || !Files.exists(file)) {
+      return null;
+    }
+    try {
+      LocalDateTime checkpoint = LocalDateTime.parse(Files.readString(file).trim());
+      Files.delete(file);
+      return checkpoint;
+    } catch (IOException | DateTimeParseException e) {
+      System.getLogger("SystemEvents")
+          .log(System.Logger.Level.WARNING, "Could not read search index checkpoint " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the checkpoint of a clean shutdown
+   *
+   * @param shutdown the database time of the shutdown
+   */
+  public void write(LocalDateTime shutdown) {
+    if (!persistent) {
+      return;
+    }
+    try {
+      Files.createDirectories(file.getParent());
+      Files.writeString(file, shutdown.toString());
+    } catch (IOException e) {
+      System.getLogger("SystemEvents")
+          .log(System.Logger.Level.WARNING, "Could not write search index checkpoint " + file, e);
+    }
+  }
+}
@@ -0,0 +1,332 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.Activity;
+import com.springvuegradle.team6.models.Profile;
+import com.springvuegradle.team6.models.location.NamedLocation;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.hibernate.search.engine.ProjectionConstants;
+import org.hibernate.search.jpa.FullTextEntityManager;
+import org.hibernate.search.jpa.FullTextQuery;
+import org.hibernate.search.jpa.Search;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+import javax.transaction.Transactional;
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rebuilds the Lucene indexes of every indexed entity in the background. Hibernate Search keeps
+ * the indexes up to date as entities are written, so a full rebuild is only needed to create the
+ * indexes of an existing database or to repair them, at startup or when an admin asks for it.
+ * Searches never rebuild the indexes themselves. When the indexes are kept on disk they survive a
+ * restart, and only the rows written since the last shutdown have to be indexed again, which is
+ * also done in the background.
+ */
+@Service
+public class SearchIndexer {
+  /** The indexed entities, each has a last modified column set by the database */
+  private static final Class<?>[] INDEXED_TYPES = {Profile.class, Activity.class};
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @PersistenceUnit private EntityManagerFactory entityManagerFactory;
+
+  /** Threads loading entities for each entity type being indexed */
+  @Value("${search.indexer.threads:2}")
+  private int threads;
+
+  /** Entities loaded per query while indexing */
+  @Value("${search.indexer.batch.size:100}")
+  private int batchSize;
+
+  /** Runs catch ups in the background, one at a time */
+  private final ExecutorService catchUpExecutor =
+      new ThreadPoolExecutor(
+          1,
+          1,
+          0,
+          TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(1),
+          new ThreadPoolExecutor.AbortPolicy());
+
+  private Future<?> running;
+
+  /**
+   * Starts rebuilding every index in the background, unless a rebuild is already running
+   *
+   * @return true if a rebuild was started, false if one was already running
+   */
+  public synchronized boolean reindex() {
+    if (isRunning()) {
+      return false;
+    }
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+    running =
+        fullTextEntityManager
+            .createIndexer()
+            .threadsToLoadObjects(threads)
+            .batchSizeToLoadObjects(batchSize)
+            .start();
+    System.getLogger("SystemEvents").log(System.Logger.Level.INFO, "Search index rebuild started");
+    return true;
+  }
+
+  /**
+   * Reindexes a single entity straight away. Needed after changes that Hibernate Search does not
+   * see as changes to the indexed entity, such as switching which of a profile's emails is primary.
+   *
+   * @param type the type of the entity
+   * @param id the id of the entity
+   */
+  @Transactional
+  public void index(Class<?> type, Serializable id) {
+    FullTextEntityManager fullTextEntityManager = Search.getFullTextEntityManager(entityManager);
+    Object entity = fullTextEntityManager.find(type, id);
+    if (entity != null) {
+      fullTextEntityManager.index(entity);
+    }
+  }
+
+  /**
+   * Indexes again the activities and profiles at a location that coordinates were added to, once
+   * the transaction that added them has committed. Their documents hold the coordinates of their
+   * location, and Hibernate Search does not see a change to the location as a change to them. The
+   * entities are indexed on an entity manager of their own, so the entity manager of the request
+   * that added the coordinates is left as it was.
+   *
+   * @param location the location that coordinates were added to
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCoordinatesAdded(NamedLocation location) {
+    EntityManager locationEntityManager = entityManagerFactory.createEntityManager();
+    try {
+      locationEntityManager.getTransaction().begin();
+      FullTextEntityManager fullTextEntityManager =
+          Search.getFullTextEntityManager(locationEntityManager);
+      int indexed = 0;
+      for (Class<?> type : INDEXED_TYPES) {
+        List<Integer> ids =
+            locationEntityManager
+                .createQuery(
+                    "select e.id from "
+                        + type.getSimpleName()
+                        + " e where e.location.locationID = :locationId",
+                    Integer.class)
+                .setParameter("locationId", location.getLocationID())
+                .getResultList();
+        indexed += index(fullTextEntityManager, type, ids);
+      }
+      locationEntityManager.getTransaction().commit();
+      System.getLogger("SystemEvents")
+          .log(
+              System.Logger.Level.INFO,
+              "Coordinates added to " + location + ", " + indexed + " indexed");
+    } finally {
+      if (locationEntityManager.getTransaction().isActive()) {
+        locationEntityManager.getTransaction().rollback();
+      }
+      locationEntityManager.close();
+    }
+  }
+
+  /**
+   * Updates the last modified time of a profile whose emails or activity types changed. They are
+   * indexed with the profile but stored in tables of their own, so the database does not update
+   * the profile row for them and a catch up would otherwise miss the change.
+   *
+   * @param profile the profile that was saved
+   */
+  @EventListener
+  @Transactional
+  public void onProfileCollectionsChanged(Profile profile) {
+    entityManager
+        .createNativeQuery("update profile set last_modified = current_timestamp where id = :id")
+        .setParameter("id", profile.getId())
+        .executeUpdate();
+  }
+
+  /**
+   * Starts catching the indexes up in the background, unless a rebuild or catch up is already
+   * running. Whether it finished without failing is reported by isComplete like a rebuild.
+   *
+   * @param since the database time of the last shutdown
+   * @return true if the catch up was started, false if a rebuild or catch up was already running
+   */
+  public synchronized boolean startCatchUp(LocalDateTime since) {
+    if (isRunning()) {
+      return false;
+    }
+    running = catchUpExecutor.submit(() -> catchUp(since));
+    System.getLogger("SystemEvents")
+        .log(System.Logger.Level.INFO, "Search index catch up since " + since + " started");
+    return true;
+  }
+
+  /**
+   * Brings indexes kept on disk up to date with the rows written since the last shutdown. Rows
+   * modified since then are indexed again. The number of documents in each index is then compared
+   * with the number of rows, and only if they differ are the ids compared to purge deleted rows
+   * and index missing ones. Runs on an entity manager and transaction of its own, so it can be
+   * run from any thread.
+   *
+   * @param since the database time of the last shutdown
+   */
+  public void catchUp(LocalDateTime since) {
+    EntityManager catchUpEntityManager = entityManagerFactory.createEntityManager();
+    try {
+      catchUpEntityManager.getTransaction().begin();
+      FullTextEntityManager fullTextEntityManager =
+          Search.getFullTextEntityManager(catchUpEntityManager);
+      int indexed = 0;
+      int purged = 0;
+      for (Class<?> type : INDEXED_TYPES) {
+        String entity = type.getSimpleName();
+        List<Integer> changed =
+            catchUpEntityManager
+                .createQuery(
+                    "select e.id from " + entity + " e where e.lastModified >= :since",
+                    Integer.class)
+                .setParameter("since", since)
+                .getResultList();
+        indexed += index(fullTextEntityManager, type, changed);
+
+        long rows =
+            catchUpEntityManager
+                .createQuery("select count(e) from " + entity + " e", Long.class)
+                .getSingleResult();
+        int documents =
+            fullTextEntityManager
+                .createFullTextQuery(new MatchAllDocsQuery(), type)
+                .getResultSize();
+        if (rows == documents) {
+          continue;
+        }
+
+        Set<Integer> rowIds =
+            new HashSet<>(
+                catchUpEntityManager
+                    .createQuery("select e.id from " + entity + " e", Integer.class)
+                    .getResultList());
+        FullTextQuery documentQuery =
+            fullTextEntityManager.createFullTextQuery(new MatchAllDocsQuery(), type);
+        documentQuery.setProjection(ProjectionConstants.ID);
+        Set<Integer> documentIds = new HashSet<>();
+        for (Object result : documentQuery.getResultList()) {
+          documentIds.add((Integer) ((Object[]) result)[0]);
+        }
+        for (Integer id : documentIds) {
+          if (!rowIds.contains(id)) {
+            fullTextEntityManager.purge(type, id);
+            purged++;
+          }
+        }
+        rowIds.removeAll(documentIds);
+        indexed += index(fullTextEntityManager, type, rowIds);
+      }
+      catchUpEntityManager.getTransaction().commit();
+      System.getLogger("SystemEvents")
+          .log(
+              System.Logger.Level.INFO,
+              "Search indexes caught up since " + since + ", " + indexed + " indexed and " + purged
+                  + " purged");
+    } finally {
+      if (catchUpEntityManager.getTransaction().isActive()) {
+        catchUpEntityManager.getTransaction().rollback();
+      }
+      catchUpEntityManager.close();
+    }
+  }
+
+  /**
+   * Indexes entities in batches of search.indexer.batch.size
+   *
+   * @param fullTextEntityManager the entity manager to index with
+   * @param type the type of the entities
+   * @param ids the ids of the entities
+   * @return the number of entities indexed
+   */
+  private int index(
+      FullTextEntityManager fullTextEntityManager, Class<?> type, Iterable<Integer> ids) {
+    int count = 0;
+    int read = 0;
+    for (Integer id : ids) {
+      Object entity = fullTextEntityManager.find(type, id);
+      if (entity != null) {
+        fullTextEntityManager.index(entity);
+        count++;
+      }
+      if (++read % batchSize == 0) {
+        fullTextEntityManager.flushToIndexes();
+        fullTextEntityManager.clear();
+      }
+    }
+    fullTextEntityManager.flushToIndexes();
+    fullTextEntityManager.clear();
+    return count;
+  }
+
+  /**
+   * The current time of the database, which is the clock last modified columns are set by
+   *
+   * @return the database time
+   */
+  public LocalDateTime databaseTime() {
+    Timestamp now =
+        (Timestamp) entityManager.createNativeQuery("select localtimestamp").getSingleResult();
+    return now.toLocalDateTime();
+  }
+
+  /**
+   * Whether the indexes are complete, which is when no rebuild or catch up has been started or the
+   * last one finished without failing
+   *
+   * @return true if no rebuild or catch up is running or has failed
+   */
+  public synchronized boolean isComplete() {
+    if (running == null) {
+      return true;
+    }
+    if (!running.isDone() || running.isCancelled()) {
+      return false;
+    }
+    try {
+      running.get();
+      return true;
+    } catch (InterruptedException | ExecutionException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Whether a rebuild started by reindex or a catch up started by startCatchUp is still running
+   *
+   * @return true if a rebuild or catch up is running
+   */
+  public synchronized boolean isRunning() {
+    return running != null && !running.isDone();
+  }
+
+  /** Stops a running catch up when the application shuts down */
+  @PreDestroy
+  public void shutdown() {
+    catchUpExecutor.shutdownNow();
+  }
+}
@@ -0,0 +1,91 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.Tag;
+import com.springvuegradle.team6.models.TagRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process wide dictionary of the stored tags by name. A tag never changes once it is stored, so
+ * the tag read for one request can be handed to every later request with the same hashtag instead
+ * of reading it again. Only tags that have been committed are added, and the least recently used
+ * ones are dropped once there are more than tags.dictionary.size of them. The most used tags are
+ * loaded at startup. Tags deleted through the tag rest resource are dropped from the dictionary.
+ */
+@Service
+@RepositoryEventHandler
+public class TagDictionary {
+  private final TagRepository tagRepository;
+  private final int maxTags;
+
+  private final LinkedHashMap<String, Tag> tags;
+
+  TagDictionary(TagRepository tagRepository, @Value("${tags.dictionary.size:10000}") int maxTags) {
+    this.tagRepository = tagRepository;
+    this.maxTags = maxTags;
+    this.tags =
+        new LinkedHashMap<String, Tag>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Tag> eldest) {
+            return size() > TagDictionary.this.maxTags;
+          }
+        };
+  }
+
+  /** Fill the dictionary with the most used stored tags */
+  public void warm() {
+    if (maxTags <= 0) {
+      return;
+    }
+    putAll(tagRepository.findMostUsed(PageRequest.of(0, maxTags)));
+  }
+
+  /**
+   * Get the stored tags of the given names that are in the dictionary
+   *
+   * @param names the tag names, formatted as they are stored
+   * @return the tags found by name, names not in the dictionary are left out
+   */
+  public synchronized Map<String, Tag> getAll(Collection<String> names) {
+    Map<String, Tag> found = new HashMap<>();
+    for (String name : names) {
+      Tag tag = tags.get(name);
+      if (tag != null) {
+        found.put(name, tag);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Add committed tags to the dictionary
+   *
+   * @param stored the tags, which must already be committed
+   */
+  public synchronized void putAll(Collection<Tag> stored) {
+    if (maxTags <= 0) {
+      return;
+    }
+    for (Tag tag : stored) {
+      tags.put(tag.getName(), tag);
+    }
+  }
+
+  /**
+   * Drop a deleted tag from the dictionary
+   *
+   * @param tag the deleted tag
+   */
+  @HandleAfterDelete
+  public synchronized void evict(Tag tag) {
+    tags.remove(tag.getName());
+  }
+}
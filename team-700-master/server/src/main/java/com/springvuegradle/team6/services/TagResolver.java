@@ -0,0 +1,112 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.Tag;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the hashtags of an activity to stored tags. All the existing tags are read with one
+ * query, and the missing ones are inserted together so hibernate sends them as one JDBC batch.
+ * Two requests can insert the same new tag at once. The second one then breaks the unique
+ * constraint on the tag name and rolls back. It is retried, and finds the tag the first request
+ * stored.
+ *
+ * <p>Each attempt runs on an entity manager and transaction of its own rather than the one bound
+ * to the request, so rolling back an attempt does not clear the request's entity manager and
+ * detach the activity being edited. The tags returned are detached, which is enough to reference
+ * them from an activity. Tags already in the {@link TagDictionary} are not read again, and the
+ * tags are added to it once their transaction has committed.
+ */
+@Service
+public class TagResolver {
+  private static final int ATTEMPTS = 3;
+
+  private final EntityManagerFactory entityManagerFactory;
+  private final TagDictionary tagDictionary;
+
+  TagResolver(EntityManagerFactory entityManagerFactory, TagDictionary tagDictionary) {
+    this.entityManagerFactory = entityManagerFactory;
+    this.tagDictionary = tagDictionary;
+  }
+
+  /**
+   * Finds the stored tag of each hashtag, storing the ones that do not exist yet
+   *
+   * @param hashtags the hashtags, already formatted to be stored
+   * @return the stored tags, one for each distinct name
+   */
+  public Set<Tag> resolve(Collection<Tag> hashtags) {
+    Set<String> names = new HashSet<>();
+    for (Tag hashtag : hashtags) {
+      names.add(hashtag.getName());
+    }
+    Map<String, Tag> known = tagDictionary.getAll(names);
+    Set<Tag> tags = new HashSet<>(known.values());
+    names.removeAll(known.keySet());
+    if (names.isEmpty()) {
+      return tags;
+    }
+
+    for (int attempt = 1; ; attempt++) {
+      try {
+        Set<Tag> stored = findOrInsert(names);
+        tagDictionary.putAll(stored);
+        tags.addAll(stored);
+        return tags;
+      } catch (PersistenceException e) {
+        // Another request stored one of the tags first, the next attempt reads it
+        if (!isConstraintViolation(e) || attempt == ATTEMPTS) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  private Set<Tag> findOrInsert(Set<String> names) {
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.getTransaction().begin();
+      List<Tag> existing =
+          entityManager
+              .createQuery("select t from Tag t where t.name in :names", Tag.class)
+              .setParameter("names", names)
+              .getResultList();
+      Set<Tag> tags = new HashSet<>(existing);
+      Set<String> missing = new HashSet<>(names);
+      for (Tag tag : existing) {
+        missing.remove(tag.getName());
+      }
+      for (String name : missing) {
+        Tag tag = new Tag(name);
+        entityManager.persist(tag);
+        tags.add(tag);
+      }
+      entityManager.flush();
+      entityManager.getTransaction().commit();
+      return tags;
+    } finally {
+      if (entityManager.getTransaction().isActive()) {
+        entityManager.getTransaction().rollback();
+      }
+      entityManager.close();
+    }
+  }
+
+  private static boolean isConstraintViolation(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ConstraintViolationException) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
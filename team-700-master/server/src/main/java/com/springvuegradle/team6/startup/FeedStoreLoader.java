@@ -0,0 +1,35 @@
+package com.springvuegradle.team6.startup;
+
+import com.springvuegradle.team6.models.FeedEntryRepository;
+import com.springvuegradle.team6.models.SubscriptionHistoryRepository;
+import com.springvuegradle.team6.services.HomeFeedStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * FeedStoreLoader class to populate the materialised home feed store from the existing subscription
+ * and activity history, the first time the application starts against a database without one
+ */
+@Component
+public class FeedStoreLoader implements ApplicationListener<ContextRefreshedEvent> {
+
+  @Autowired private FeedEntryRepository feedEntryRepository;
+
+  @Autowired private SubscriptionHistoryRepository subscriptionHistoryRepository;
+
+  @Autowired private HomeFeedStore homeFeedStore;
+
+  /**
+   * Rebuild the home feed store if it is empty but there are subscriptions to build it from
+   *
+   * @param event ContextRefreshedEvent
+   */
+  @Override
+  public void onApplicationEvent(ContextRefreshedEvent event) {
+    if (feedEntryRepository.count() == 0 && subscriptionHistoryRepository.count() > 0) {
+      homeFeedStore.rebuild();
+    }
+  }
+}
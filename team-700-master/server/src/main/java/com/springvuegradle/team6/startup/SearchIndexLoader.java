@@ -0,0 +1,66 @@
+package com.springvuegradle.team6.startup;
+
+import com.springvuegradle.team6.services.SearchIndexCheckpoint;
+import com.springvuegradle.team6.services.SearchIndexer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * SearchIndexLoader class to bring the search indexes up to date once the application has started,
+ * so indexes missing or out of date on this machine are repaired without holding up startup. If
+ * the indexes are on disk and the application last shut down cleanly, only the rows written since
+ * then are indexed again, otherwise the indexes are rebuilt in full. Either way the work runs in
+ * the background. A checkpoint is written on a clean shutdown for the next start, provided the
+ * catch up or rebuild finished without failing. Disabled with search.indexer.startup=false.
+ */
+@Component
+public class SearchIndexLoader implements ApplicationListener<ApplicationReadyEvent> {
+
+  @Autowired private SearchIndexer searchIndexer;
+
+  @Autowired private SearchIndexCheckpoint searchIndexCheckpoint;
+
+  @Value("${search.indexer.startup:true}")
+  private boolean enabled;
+
+  /** Whether the indexes were caught up or rebuilt from startup, so a checkpoint can be written */
+  private boolean started;
+
+  /**
+   * Start catching the search indexes up since the last shutdown, or rebuilding them, if enabled
+   *
+   * @param event ApplicationReadyEvent
+   */
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    if (!enabled) {
+      return;
+    }
+    LocalDateTime checkpoint = searchIndexCheckpoint.take();
+    if (checkpoint == null) {
+      searchIndexer.reindex();
+    } else {
+      searchIndexer.startCatchUp(checkpoint);
+    }
+    started = true;
+  }
+
+  /**
+   * Write the checkpoint of this shutdown if the indexes are complete
+   *
+   * @param event ContextClosedEvent
+   */
+  @EventListener
+  public void onApplicationClosed(ContextClosedEvent event) {
+    if (started && searchIndexer.isComplete()) {
+      searchIndexCheckpoint.write(searchIndexer.databaseTime());
+    }
+  }
+}
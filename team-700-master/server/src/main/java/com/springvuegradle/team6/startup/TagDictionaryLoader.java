@@ -0,0 +1,27 @@
+package com.springvuegradle.team6.startup;
+
+import com.springvuegradle.team6.services.TagDictionary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * TagDictionaryLoader class to load the most used tags into the tag dictionary once the application
+ * has started, so the first requests with popular hashtags do not have to read them
+ */
+@Component
+public class TagDictionaryLoader implements ApplicationListener<ApplicationReadyEvent> {
+
+  @Autowired private TagDictionary tagDictionary;
+
+  /**
+   * Warm the tag dictionary
+   *
+   * @param event ApplicationReadyEvent
+   */
+  @Override
+  public void onApplicationEvent(ApplicationReadyEvent event) {
+    tagDictionary.warm();
+  }
+}
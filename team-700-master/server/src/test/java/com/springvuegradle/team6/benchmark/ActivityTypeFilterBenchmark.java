@@ -0,0 +1,160 @@
+package com.springvuegradle.team6.benchmark;
+
+import com.springvuegradle.team6.models.*;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Compares profile searches restricted by activity type with the activity types as clauses of the
+ * scoring query, as profile search used to, against the cached activity type filter. Both run on
+ * the same index, switching between them with search.profiles.activity.filter, for activity type
+ * only searches and for name searches restricted by activity type, and the table shows the p50
+ * and p95 latency of each.
+ *
+ * <p>Run with the benchmark gradle task, it is excluded from the normal test run. The profiles are
+ * made by the SyntheticDataGenerator and name searches use the name of a random one of them. The
+ * number of indexed profiles is set with -Dbenchmark.profiles (1000000 by default) and the number
+ * of timed searches of each kind with -Dbenchmark.requests.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test"})
+class ActivityTypeFilterBenchmark {
+  private static final int BATCH_SIZE = 5000;
+  private static final int WARMUP_REQUESTS = 50;
+
+  @Autowired private ProfileRepository profileRepository;
+  @Autowired private ActivityRepository activityRepository;
+  @Autowired private ActivityRoleRepository activityRoleRepository;
+  @Autowired private TagRepository tagRepository;
+  @Autowired private SubscriptionHistoryRepository subscriptionHistoryRepository;
+  @Autowired private ActivityHistoryRepository activityHistoryRepository;
+  @Autowired private CustomizedProfileRepositoryImpl customizedProfileRepository;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private SyntheticDataGenerator generator;
+
+  @Test
+  void benchmarkActivityTypeFilter() {
+    int profiles = Integer.parseInt(System.getProperty("benchmark.profiles", "1000000"));
+    int requests = Integer.parseInt(System.getProperty("benchmark.requests", "500"));
+    addProfiles(profiles);
+
+    System.out.println(
+        "profiles | search                    | clauses p50 | clauses p95 | filter p50 | filter p95");
+    report(profiles, "activity=run", requests, () -> new String[] {null, "run", null});
+    report(profiles, "activity=run bike AND", requests, () -> new String[] {null, "run bike", "AND"});
+    report(profiles, "activity=swim hike OR", requests, () -> new String[] {null, "swim hike", "OR"});
+    report(
+        profiles,
+        "fullname + activity AND",
+        requests,
+        () -> new String[] {randomName(), randomActivityTypes(), "AND"});
+    report(
+        profiles,
+        "fullname + activity OR",
+        requests,
+        () -> new String[] {randomName(), randomActivityTypes(), "OR"});
+  }
+
+  /**
+   * Adds profiles with the SyntheticDataGenerator in batches, each batch is indexed when its
+   * transaction commits
+   *
+   * @param count the number of profiles to add
+   */
+  private void addProfiles(int count) {
+    generator =
+        new SyntheticDataGenerator(
+            profileRepository,
+            activityRepository,
+            activityRoleRepository,
+            tagRepository,
+            subscriptionHistoryRepository,
+            activityHistoryRepository,
+            42);
+    for (int start = 0; start < count; start += BATCH_SIZE) {
+      generator.generate(Math.min(BATCH_SIZE, count - start), 0, 0, 0);
+    }
+  }
+
+  private String randomName() {
+    List<Profile> profiles = generator.getProfiles();
+    Profile profile = profiles.get(generator.uniform(profiles.size()));
+    return profile.getFirstname() + " " + profile.getLastname();
+  }
+
+  private String randomActivityTypes() {
+    ActivityType[] activityTypes = ActivityType.values();
+    return activityTypes[generator.uniform(activityTypes.length)].name()
+        + " "
+        + activityTypes[generator.uniform(activityTypes.length)].name();
+  }
+
+  /**
+   * Times the same searches with activity type clauses and with the cached filter and prints
+   * their latency percentiles
+   *
+   * @param profiles the number of indexed profiles
+   * @param search the name of the search in the table
+   * @param requests the number of timed searches of each kind
+   * @param parameters creates the fullname, activity types and method of the next search
+   */
+  private void report(int profiles, String search, int requests, Supplier<String[]> parameters) {
+    List<String[]> searches = new ArrayList<>();
+    for (int i = 0; i < WARMUP_REQUESTS + requests; i++) {
+      searches.add(parameters.get());
+    }
+    List<Long> clauses = time(searches, false);
+    List<Long> filter = time(searches, true);
+    System.out.println(
+        String.format(
+            "%8d | %-25s | %11.2f | %11.2f | %10.2f | %10.2f",
+            profiles,
+            search,
+            percentile(clauses, 50),
+            percentile(clauses, 95),
+            percentile(filter, 50),
+            percentile(filter, 95)));
+  }
+
+  private List<Long> time(List<String[]> searches, boolean cachedActivityFilter) {
+    ReflectionTestUtils.setField(
+        customizedProfileRepository, "cachedActivityFilter", cachedActivityFilter);
+    List<Long> latencies = new ArrayList<>();
+    for (int i = 0; i < searches.size(); i++) {
+      String[] search = searches.get(i);
+      long start = System.nanoTime();
+      transactionTemplate.execute(
+          status ->
+              profileRepository.searchFullnameProjected(search[0], search[1], search[2], 10, 0));
+      if (i >= WARMUP_REQUESTS) {
+        latencies.add(System.nanoTime() - start);
+      }
+    }
+    Collections.sort(latencies);
+    return latencies;
+  }
+
+  /**
+   * The latency below which the given percentage of searches completed
+   *
+   * @param sorted the latencies in nanoseconds in ascending order
+   * @param percent the percentile
+   * @return the latency in milliseconds
+   */
+  private static double percentile(List<Long> sorted, int percent) {
+    int index = (int) Math.ceil(percent / 100.0 * sorted.size()) - 1;
+    return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+  }
+}
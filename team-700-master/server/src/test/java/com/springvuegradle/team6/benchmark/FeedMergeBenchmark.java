@@ -0,0 +1,111 @@
+package com.springvuegradle.team6.benchmark;
+
+import com.springvuegradle.team6.responses.FeedResponse;
+import com.springvuegradle.team6.services.FeedAssembler;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares building a page of a home feed by sorting every feed of every subscription, as the
+ * feed assembler used to, against the k-way merge that stops after offset + limit feeds. Both are
+ * run in memory on the same synthetic subscriptions so only the two algorithms are measured, for
+ * growing history sizes and page depths, and the table shows where the merge starts to win. Run
+ * with the benchmark gradle task, it is excluded from the normal test run.
+ */
+@Tag("benchmark")
+class FeedMergeBenchmark {
+  private static final int SUBSCRIPTIONS = 50;
+  private static final int[] HISTORY_PER_SUBSCRIPTION = {1, 5, 20, 100, 500};
+  private static final int[] OFFSETS = {0, 100, 1000};
+  private static final int PAGE_SIZE = 10;
+  private static final int WARMUP_ITERATIONS = 200;
+  private static final int ITERATIONS = 1000;
+
+  @Test
+  void benchmarkSortAgainstMerge() {
+    System.out.println("history per subscription | offset | sort ms | merge ms | faster");
+    for (int history : HISTORY_PER_SUBSCRIPTION) {
+      List<List<FeedResponse>> streams = createStreams(history);
+      for (int offset : OFFSETS) {
+        double sort = time(() -> sortAll(streams, offset, PAGE_SIZE));
+        double merge = time(() -> FeedAssembler.mergeFeeds(streams, offset, PAGE_SIZE));
+        System.out.println(
+            String.format(
+                "%24d | %6d | %7.4f | %8.4f | %s",
+                history, offset, sort, merge, sort < merge ? "sort" : "merge"));
+      }
+    }
+  }
+
+  /**
+   * The previous approach, which copies every feed into one list, sorts it and takes the page
+   *
+   * @param streams the feeds of each subscription
+   * @param offset the number of feeds to skip
+   * @param limit the number of feeds to return
+   * @return the requested page
+   */
+  private static List<FeedResponse> sortAll(
+      List<List<FeedResponse>> streams, int offset, int limit) {
+    List<FeedResponse> feeds = new ArrayList<>();
+    for (List<FeedResponse> stream : streams) {
+      feeds.addAll(stream);
+    }
+    feeds.sort((o1, o2) -> o2.dateTime.compareTo(o1.dateTime));
+    if (offset > feeds.size()) {
+      return new ArrayList<>();
+    }
+    return feeds.subList(offset, Math.min(feeds.size(), offset + limit));
+  }
+
+  /**
+   * Average time in milliseconds of one call, after a warm up
+   *
+   * @param page the page build being timed
+   * @return the average time of one build
+   */
+  private static double time(Supplier<List<FeedResponse>> page) {
+    int sink = 0;
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      sink += page.get().size();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      sink += page.get().size();
+    }
+    double elapsed = (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+    if (sink < 0) {
+      System.out.println(sink);
+    }
+    return elapsed;
+  }
+
+  /**
+   * Creates the feeds of each subscription in descending order of date time, with the updates of
+   * the different subscriptions interleaved in time
+   *
+   * @param history the number of feeds of each subscription
+   * @return the feeds of each subscription
+   */
+  private static List<List<FeedResponse>> createStreams(int history) {
+    Random random = new Random(42);
+    LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+    List<List<FeedResponse>> streams = new ArrayList<>();
+    for (int i = 0; i < SUBSCRIPTIONS; i++) {
+      List<FeedResponse> stream = new ArrayList<>();
+      LocalDateTime time = start.plusMinutes(random.nextInt(60 * 24 * 365));
+      for (int j = 0; j < history; j++) {
+        stream.add(new FeedResponse(i, "Activity " + i + " was updated", time.toString()));
+        time = time.minusMinutes(1 + random.nextInt(60 * 24));
+      }
+      streams.add(stream);
+    }
+    return streams;
+  }
+}
@@ -0,0 +1,121 @@
+package com.springvuegradle.team6.benchmark;
+
+import com.springvuegradle.team6.models.*;
+import com.springvuegradle.team6.responses.FeedResponse;
+import com.springvuegradle.team6.services.FeedAssembler;
+import com.springvuegradle.team6.services.HomeFeedStore;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Compares the cost of reading the first page of a home feed through the in memory assembly, the
+ * single union query and the materialised feed store as the number of subscriptions grows. Run
+ * with the benchmark gradle task, it is excluded from the normal test run.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test"})
+class HomeFeedBenchmark {
+  private static final int[] SUBSCRIPTION_COUNTS = {10, 50, 200};
+  private static final int HISTORY_PER_ACTIVITY = 20;
+  private static final int PAGE_SIZE = 10;
+  private static final int WARMUP_ITERATIONS = 20;
+  private static final int ITERATIONS = 100;
+
+  @Autowired private ProfileRepository profileRepository;
+  @Autowired private ActivityRepository activityRepository;
+  @Autowired private ActivityHistoryRepository activityHistoryRepository;
+  @Autowired private SubscriptionHistoryRepository subscriptionHistoryRepository;
+  @Autowired private FeedAssembler feedAssembler;
+  @Autowired private HomeFeedStore homeFeedStore;
+
+  @Test
+  void benchmarkHomeFeedFirstPage() {
+    System.out.println("subscriptions | assemble ms | query ms | store ms");
+    for (int subscriptions : SUBSCRIPTION_COUNTS) {
+      int profileId = createProfileWithSubscriptions(subscriptions);
+
+      double assemble = time(() -> feedAssembler.assembleFeed(profileId, 0, PAGE_SIZE));
+      double query = time(() -> feedAssembler.queryFeed(profileId, 0, PAGE_SIZE));
+      double store =
+          time(
+              () ->
+                  HomeFeedStore.toFeedResponses(homeFeedStore.getFeed(profileId, 0, PAGE_SIZE)));
+
+      System.out.println(
+          String.format(
+              "%13d | %11.3f | %8.3f | %8.3f", subscriptions, assemble, query, store));
+    }
+  }
+
+  /**
+   * Average time in milliseconds of one call, after a warm up
+   *
+   * @param feed the feed read being timed
+   * @return the average time of one read
+   */
+  private double time(Supplier<List<FeedResponse>> feed) {
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      feed.get();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ITERATIONS; i++) {
+      feed.get();
+    }
+    return (System.nanoTime() - start) / 1_000_000.0 / ITERATIONS;
+  }
+
+  /**
+   * Creates a profile subscribed to the given number of activities, each with some history
+   *
+   * @param subscriptions the number of activities to subscribe to
+   * @return the id of the profile
+   */
+  private int createProfileWithSubscriptions(int subscriptions) {
+    Set<Email> emails = new HashSet<>();
+    Email email = new Email("benchmark" + subscriptions + "@gmail.com");
+    email.setPrimary(true);
+    emails.add(email);
+    Profile profile = new Profile();
+    profile.setFirstname("Bench");
+    profile.setLastname("Mark");
+    profile.setEmails(emails);
+    profile.setDob("2000-01-01");
+    profile.setPassword("Password1");
+    profile.setGender("male");
+    profile = profileRepository.save(profile);
+
+    LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+    for (int i = 0; i < subscriptions; i++) {
+      Activity activity = new Activity();
+      activity.setProfile(profile);
+      activity.setActivityName("Activity " + i);
+      activity.setContinuous(true);
+      activity = activityRepository.save(activity);
+
+      SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+      subscriptionHistory.setActivity(activity);
+      subscriptionHistory.setProfile(profile);
+      subscriptionHistory.setStartDateTime(start.plusMinutes(i));
+      subscriptionHistoryRepository.save(subscriptionHistory);
+
+      for (int j = 0; j < HISTORY_PER_ACTIVITY; j++) {
+        ActivityHistory history = new ActivityHistory();
+        history.setActivity(activity);
+        history.setTimeDate(start.plusDays(j + 1).plusMinutes(i));
+        history.setMessage("Activity " + i + " was updated");
+        activityHistoryRepository.save(history);
+      }
+    }
+    return profile.getId();
+  }
+}
@@ -0,0 +1,191 @@
+package com.springvuegradle.team6.benchmark;
+
+import com.springvuegradle.team6.models.*;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Measures how the home feed, profile search, hashtag autocomplete and activity endpoints scale
+ * with the size of the database. The database is grown in steps with the SyntheticDataGenerator
+ * and after each step every endpoint is driven with requests for skewed random profiles,
+ * activities and search terms, and the p50, p95 and p99 latency and the throughput of each are
+ * printed as a table. Requests go through the whole MVC stack but not over the network.
+ *
+ * <p>Run with the benchmark gradle task, it is excluded from the normal test run. The steps are
+ * set with -Dbenchmark.profiles=100,1000,5000 (activities are half the profiles) and the number
+ * of requests with -Dbenchmark.requests. It runs against H2 by default, passing
+ * spring.datasource.* system properties runs it against another database.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test"})
+class ScalabilityBenchmark {
+  private static final int SUBSCRIPTIONS_PER_PROFILE = 10;
+  private static final int HISTORY_PER_ACTIVITY = 10;
+  private static final int WARMUP_REQUESTS = 50;
+
+  @Autowired private MockMvc mvc;
+  @Autowired private ProfileRepository profileRepository;
+  @Autowired private ActivityRepository activityRepository;
+  @Autowired private ActivityRoleRepository activityRoleRepository;
+  @Autowired private TagRepository tagRepository;
+  @Autowired private SubscriptionHistoryRepository subscriptionHistoryRepository;
+  @Autowired private ActivityHistoryRepository activityHistoryRepository;
+
+  @Test
+  void benchmarkEndpointsAsDataGrows() throws Exception {
+    int[] steps =
+        Arrays.stream(System.getProperty("benchmark.profiles", "100,500,2000").split(","))
+            .mapToInt(Integer::parseInt)
+            .toArray();
+    int requests = Integer.parseInt(System.getProperty("benchmark.requests", "500"));
+
+    SyntheticDataGenerator generator =
+        new SyntheticDataGenerator(
+            profileRepository,
+            activityRepository,
+            activityRoleRepository,
+            tagRepository,
+            subscriptionHistoryRepository,
+            activityHistoryRepository,
+            42);
+
+    System.out.println(
+        "profiles | activities | history | endpoint              | p50 ms | p95 ms | p99 ms | req/s");
+    for (int profiles : steps) {
+      int added = profiles - generator.getProfiles().size();
+      generator.generate(added, added / 2, SUBSCRIPTIONS_PER_PROFILE, HISTORY_PER_ACTIVITY);
+
+      report(generator, "/feed/homefeed", requests, () -> homeFeed(generator));
+      report(generator, "/profiles?fullname=", requests, () -> profileSearch(generator));
+      report(generator, "/hashtag/autocomplete", requests, () -> autocomplete(generator));
+      report(generator, "/activities/{id}", requests, () -> activity(generator));
+    }
+  }
+
+  /** A GET request along with the session of the profile sending it */
+  private static class BenchmarkRequest {
+    private final MockHttpSession session;
+    private final String url;
+
+    BenchmarkRequest(int profileId, String url) {
+      this.session = new MockHttpSession();
+      this.session.setAttribute("id", profileId);
+      this.url = url;
+    }
+  }
+
+  private BenchmarkRequest homeFeed(SyntheticDataGenerator generator) {
+    int profileId = randomProfile(generator).getId();
+    return new BenchmarkRequest(profileId, "/feed/homefeed/" + profileId + "?limit=10");
+  }
+
+  private BenchmarkRequest profileSearch(SyntheticDataGenerator generator) {
+    Profile profile = randomProfile(generator);
+    return new BenchmarkRequest(
+        profile.getId(),
+        "/profiles?fullname="
+            + profile.getFirstname()
+            + "%20"
+            + profile.getLastname()
+            + "&offset=0&limit=10");
+  }
+
+  private BenchmarkRequest autocomplete(SyntheticDataGenerator generator) {
+    String tag = generator.getTags().get(generator.skewed(generator.getTags().size())).getName();
+    return new BenchmarkRequest(
+        randomProfile(generator).getId(),
+        "/hashtag/autocomplete?hashtag=" + tag.substring(0, Math.min(tag.length(), 3)));
+  }
+
+  private BenchmarkRequest activity(SyntheticDataGenerator generator) {
+    List<Activity> activities = generator.getActivities();
+    Activity activity = activities.get(generator.skewed(activities.size()));
+    return new BenchmarkRequest(
+        randomProfile(generator).getId(), "/activities/" + activity.getId());
+  }
+
+  private static Profile randomProfile(SyntheticDataGenerator generator) {
+    return generator.getProfiles().get(generator.uniform(generator.getProfiles().size()));
+  }
+
+  /**
+   * Sends requests one after another after a warm up and prints their latency percentiles and
+   * throughput
+   *
+   * @param generator the generator holding the current data
+   * @param endpoint the name of the endpoint in the table
+   * @param requests the number of timed requests
+   * @param request creates the next request
+   */
+  private void report(
+      SyntheticDataGenerator generator,
+      String endpoint,
+      int requests,
+      Supplier<BenchmarkRequest> request)
+      throws Exception {
+    for (int i = 0; i < WARMUP_REQUESTS; i++) {
+      send(request.get());
+    }
+    List<Long> latencies = new ArrayList<>();
+    long start = System.nanoTime();
+    for (int i = 0; i < requests; i++) {
+      BenchmarkRequest next = request.get();
+      long sent = System.nanoTime();
+      send(next);
+      latencies.add(System.nanoTime() - sent);
+    }
+    double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+    Collections.sort(latencies);
+    System.out.println(
+        String.format(
+            "%8d | %10d | %7d | %-21s | %6.2f | %6.2f | %6.2f | %5.0f",
+            generator.getProfiles().size(),
+            generator.getActivities().size(),
+            generator.getHistoryRows(),
+            endpoint,
+            percentile(latencies, 50),
+            percentile(latencies, 95),
+            percentile(latencies, 99),
+            requests / seconds));
+  }
+
+  private void send(BenchmarkRequest request) throws Exception {
+    int status =
+        mvc.perform(MockMvcRequestBuilders.get(request.url).session(request.session))
+            .andReturn()
+            .getResponse()
+            .getStatus();
+    if (status != 200) {
+      throw new IllegalStateException(request.url + " returned " + status);
+    }
+  }
+
+  /**
+   * The latency below which the given percentage of requests completed
+   *
+   * @param sorted the latencies in nanoseconds in ascending order
+   * @param percent the percentile
+   * @return the latency in milliseconds
+   */
+  private static double percentile(List<Long> sorted, int percent) {
+    int index = (int) Math.ceil(percent / 100.0 * sorted.size()) - 1;
+    return sorted.get(Math.max(index, 0)) / 1_000_000.0;
+  }
+}
@@ -0,0 +1,231 @@
+package com.springvuegradle.team6.benchmark;
+
+import com.springvuegradle.team6.models.*;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Populates a database with synthetic profiles, activities, tags, roles, subscriptions and
+ * activity history through the JPA repositories, so the data goes through the same entity
+ * mappings, domain events and search indexing as real data. Popularity is skewed: a few
+ * activities get most of the subscriptions and roles and a few tags are on most activities, as
+ * in real usage. Each call adds to the data already generated, so a benchmark can grow the
+ * database in steps. The same seed always generates the same data.
+ */
+public class SyntheticDataGenerator {
+  private static final String[] FIRST_NAMES = {
+    "John", "Jane", "Ben", "Maria", "Wei", "Aroha", "Liam", "Olivia", "Noah", "Emma", "Hemi",
+    "Sofia", "Lucas", "Mia", "Ethan", "Ava", "Mateo", "Isla", "Tane", "Zoe"
+  };
+  private static final String[] LAST_NAMES = {
+    "Smith", "Doe", "Wang", "Lopez", "Williams", "Brown", "Taylor", "Ngata", "Wilson", "Martin",
+    "Anderson", "Thompson", "Walker", "Singh", "Kim", "Lee", "Clark", "Young", "King", "Scott"
+  };
+  private static final String[] TAG_WORDS = {
+    "run", "bike", "hike", "walk", "swim", "trail", "city", "park", "beach", "mountain", "river",
+    "night", "morning", "team", "solo", "fun", "race", "training", "social", "adventure"
+  };
+  private static final String[] ACTIVITY_WORDS = {
+    "Morning", "Evening", "Weekend", "Coastal", "Forest", "Harbour", "Hill", "Lake", "City", "Park"
+  };
+
+  private final ProfileRepository profileRepository;
+  private final ActivityRepository activityRepository;
+  private final ActivityRoleRepository activityRoleRepository;
+  private final TagRepository tagRepository;
+  private final SubscriptionHistoryRepository subscriptionHistoryRepository;
+  private final ActivityHistoryRepository activityHistoryRepository;
+  private final Random random;
+
+  private final List<Profile> profiles = new ArrayList<>();
+  private final List<Activity> activities = new ArrayList<>();
+  private final List<Tag> tags = new ArrayList<>();
+  private long historyRows;
+
+  public SyntheticDataGenerator(
+      ProfileRepository profileRepository,
+      ActivityRepository activityRepository,
+      ActivityRoleRepository activityRoleRepository,
+      TagRepository tagRepository,
+      SubscriptionHistoryRepository subscriptionHistoryRepository,
+      ActivityHistoryRepository activityHistoryRepository,
+      long seed) {
+    this.profileRepository = profileRepository;
+    this.activityRepository = activityRepository;
+    this.activityRoleRepository = activityRoleRepository;
+    this.tagRepository = tagRepository;
+    this.subscriptionHistoryRepository = subscriptionHistoryRepository;
+    this.activityHistoryRepository = activityHistoryRepository;
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Adds profiles, activities and their history to the database
+   *
+   * @param newProfiles the number of profiles to add
+   * @param newActivities the number of activities to add, each created by a random profile
+   * @param subscriptionsPerProfile the number of activities each new profile subscribes to
+   * @param historyPerActivity the number of history rows added to each new activity
+   */
+  public void generate(
+      int newProfiles, int newActivities, int subscriptionsPerProfile, int historyPerActivity) {
+    addTags(Math.max(TAG_WORDS.length, (activities.size() + newActivities) / 4));
+    List<Profile> addedProfiles = addProfiles(newProfiles);
+    List<Activity> addedActivities = addActivities(newActivities);
+    addSubscriptions(addedProfiles, subscriptionsPerProfile);
+    addHistory(addedActivities, historyPerActivity);
+  }
+
+  public List<Profile> getProfiles() {
+    return profiles;
+  }
+
+  public List<Activity> getActivities() {
+    return activities;
+  }
+
+  public List<Tag> getTags() {
+    return tags;
+  }
+
+  public long getHistoryRows() {
+    return historyRows;
+  }
+
+  /**
+   * Picks an index with a power law skew towards the start of the range, about half of the picks
+   * fall in the first eighth of the range
+   *
+   * @param size the size of the range
+   * @return an index from 0 to size - 1
+   */
+  public int skewed(int size) {
+    return (int) (size * Math.pow(random.nextDouble(), 3));
+  }
+
+  /**
+   * Picks an index uniformly
+   *
+   * @param size the size of the range
+   * @return an index from 0 to size - 1
+   */
+  public int uniform(int size) {
+    return random.nextInt(size);
+  }
+
+  private void addTags(int total) {
+    List<Tag> added = new ArrayList<>();
+    for (int i = tags.size(); i < total; i++) {
+      String word = TAG_WORDS[i % TAG_WORDS.length];
+      added.add(new Tag(i < TAG_WORDS.length ? word : word + "_" + i));
+    }
+    tags.addAll(tagRepository.saveAll(added));
+  }
+
+  private List<Profile> addProfiles(int count) {
+    List<Profile> added = new ArrayList<>();
+    ActivityType[] activityTypes = ActivityType.values();
+    for (int i = 0; i < count; i++) {
+      int number = profiles.size() + i;
+      Set<Email> emails = new HashSet<>();
+      Email email = new Email("profile" + number + "@benchmark.test");
+      email.setPrimary(true);
+      emails.add(email);
+
+      Profile profile = new Profile();
+      profile.setFirstname(FIRST_NAMES[skewed(FIRST_NAMES.length)]);
+      profile.setLastname(LAST_NAMES[skewed(LAST_NAMES.length)]);
+      profile.setEmails(emails);
+      profile.setDob("1990-01-01");
+      profile.setGender(random.nextBoolean() ? "male" : "female");
+      Set<ActivityType> types = new HashSet<>();
+      int typeCount = 1 + uniform(3);
+      for (int j = 0; j < typeCount; j++) {
+        types.add(activityTypes[skewed(activityTypes.length)]);
+      }
+      profile.setActivityTypes(types);
+      added.add(profile);
+    }
+    added = profileRepository.saveAll(added);
+    profiles.addAll(added);
+    return added;
+  }
+
+  private List<Activity> addActivities(int count) {
+    List<Activity> added = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Activity activity = new Activity();
+      activity.setProfile(profiles.get(uniform(profiles.size())));
+      activity.setActivityName(
+          ACTIVITY_WORDS[uniform(ACTIVITY_WORDS.length)] + " " + TAG_WORDS[skewed(5)] + " "
+              + (activities.size() + i));
+      activity.setDescription("A synthetic activity for benchmarking");
+      activity.setContinuous(true);
+      activity.setVisibilityType("public");
+      activity.setCreationDate(LocalDateTime.of(2020, 1, 1, 0, 0));
+      Set<Tag> activityTags = new HashSet<>();
+      int tagCount = 1 + uniform(4);
+      for (int j = 0; j < tagCount; j++) {
+        activityTags.add(tags.get(skewed(tags.size())));
+      }
+      activity.setTags(activityTags);
+      added.add(activity);
+    }
+    added = activityRepository.saveAll(added);
+    activities.addAll(added);
+
+    List<ActivityRole> roles = new ArrayList<>();
+    for (Activity activity : added) {
+      int roleCount = skewed(10);
+      for (int j = 0; j < roleCount; j++) {
+        ActivityRole role = new ActivityRole();
+        role.setActivity(activity);
+        role.setProfile(profiles.get(uniform(profiles.size())));
+        role.setActivityRoleType(
+            random.nextInt(4) == 0 ? ActivityRoleType.Organiser : ActivityRoleType.Participant);
+        roles.add(role);
+      }
+    }
+    activityRoleRepository.saveAll(roles);
+    return added;
+  }
+
+  private void addSubscriptions(List<Profile> subscribers, int perProfile) {
+    List<SubscriptionHistory> subscriptions = new ArrayList<>();
+    for (Profile profile : subscribers) {
+      Set<Integer> picked = new HashSet<>();
+      for (int i = 0; i < perProfile && picked.size() < activities.size(); i++) {
+        int index = skewed(activities.size());
+        if (picked.add(index)) {
+          SubscriptionHistory subscription = new SubscriptionHistory();
+          subscription.setProfile(profile);
+          subscription.setActivity(activities.get(index));
+          subscription.setStartDateTime(LocalDateTime.of(2020, 1, 1, 0, 0));
+          subscriptions.add(subscription);
+        }
+      }
+    }
+    subscriptionHistoryRepository.saveAll(subscriptions);
+  }
+
+  private void addHistory(List<Activity> added, int perActivity) {
+    LocalDateTime start = LocalDateTime.of(2020, 1, 2, 0, 0);
+    for (Activity activity : added) {
+      List<ActivityHistory> histories = new ArrayList<>();
+      for (int i = 0; i < perActivity; i++) {
+        Profile editor = profiles.get(uniform(profiles.size()));
+        ActivityHistory history = new ActivityHistory();
+        history.setActivity(activity);
+        history.setTimeDate(start.plusMinutes(uniform(60 * 24 * 365)));
+        history.setMessage(
+            "Activity '" + activity.getActivityName() + "' was updated by "
+                + editor.getFirstname() + " " + editor.getLastname());
+        history.setEdit(true);
+        histories.add(history);
+      }
+      activityHistoryRepository.saveAll(histories);
+      historyRows += histories.size();
+    }
+  }
+}
@@ -10,12 +10,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.util.DigestUtils;
 
 import java.util.HashSet;
 import java.util.List;
@@ -663,6 +665,97 @@ class ActivityControllerTest {
     org.junit.jupiter.api.Assertions.assertEquals(activity1Id, result.getString("id"));
   }
 
+  @Test
+  void getActivityByIdWithMatchingETagReturnNotModifiedUntilActivityChanges() throws Exception {
+    Profile profile1 = profileRepository.findById(id);
+    Activity testActivity1 = new Activity();
+    testActivity1.setActivityName("Test");
+    testActivity1.setProfile(profile1);
+    testActivity1 = activityRepository.save(testActivity1);
+
+    MockHttpServletResponse first =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/activities/" + testActivity1.getId())
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse();
+    String etag = first.getHeader("ETag");
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "\"" + DigestUtils.md5DigestAsHex(first.getContentAsByteArray()) + "\"", etag);
+
+    mvc.perform(
+            MockMvcRequestBuilders.get("/activities/" + testActivity1.getId())
+                .header("If-None-Match", etag)
+                .session(session))
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    testActivity1.setActivityName("Test edited");
+    activityRepository.save(testActivity1);
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/activities/" + testActivity1.getId())
+                    .header("If-None-Match", etag)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Test edited", new JSONObject(response).getString("activityName"));
+  }
+
+  @Test
+  void getActivityByIdServesCachedJsonUntilVisibilityChanges() throws Exception {
+    Profile profile1 = profileRepository.findById(id);
+    Activity testActivity1 = new Activity();
+    testActivity1.setActivityName("Test");
+    testActivity1.setProfile(profile1);
+    testActivity1 = activityRepository.save(testActivity1);
+
+    String first =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/activities/" + testActivity1.getId())
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    String second =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/activities/" + testActivity1.getId())
+                    .session(session))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(first, second);
+
+    mvc.perform(
+            MockMvcRequestBuilders.put(
+                    "/profiles/{profileId}/activities/{activityId}/visibility",
+                    id,
+                    testActivity1.getId())
+                .content("{\"visibility\": \"private\"}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .session(session))
+        .andExpect(status().isOk());
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/activities/" + testActivity1.getId())
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Private", new JSONObject(response).getString("visibilityType"));
+  }
+
   @Test
   void getActivityByIdWhenIdDoesntExists() throws Exception {
     Profile profile1 = profileRepository.findById(id);
@@ -1091,6 +1184,62 @@ class ActivityControllerTest {
     org.junit.jupiter.api.Assertions.assertEquals(2, result.size());
   }
 
+  @Test
+  void putVisibilityWithUnknownAccessorChangesNoRoles() throws Exception {
+    Profile owner = profileRepository.findById(id);
+    Activity activity = new Activity();
+    activity.setActivityName("testing my run");
+    activity.setContinuous(true);
+    activity.setProfile(owner);
+    activity = activityRepository.save(activity);
+
+    Profile profile1 = new Profile();
+    profile1.setFirstname("Johnny");
+    profile1.setLastname("Dong");
+    Set<Email> email1 = new HashSet<Email>();
+    email1.add(new Email("johnny@email.com"));
+    profile1.setEmails(email1);
+    profileRepository.save(profile1);
+
+    String jsonString1 =
+        "{\n"
+            + "  \"visibility\": \"restricted\",\n"
+            + "  \"accessors\": [\n"
+            + "    \"johnny@email.com\"\n"
+            + "  ]\n"
+            + "}";
+
+    mvc.perform(
+        MockMvcRequestBuilders.put(
+                "/profiles/{profileId}/activities/{activityId}/visibility", id, activity.getId())
+            .content(jsonString1)
+            .contentType(MediaType.APPLICATION_JSON)
+            .session(session));
+
+    String jsonString2 =
+        "{\n"
+            + "  \"visibility\": \"restricted\",\n"
+            + "  \"accessors\": [\n"
+            + "    \"nobody@email.com\"\n"
+            + "  ]\n"
+            + "}";
+
+    mvc.perform(
+            MockMvcRequestBuilders.put(
+                    "/profiles/{profileId}/activities/{activityId}/visibility",
+                    id,
+                    activity.getId())
+                .content(jsonString2)
+                .contentType(MediaType.APPLICATION_JSON)
+                .session(session))
+        .andExpect(status().isNotFound());
+
+    List<ActivityRole> result = activityRoleRepository.findByActivity_Id(activity.getId());
+    org.junit.jupiter.api.Assertions.assertEquals(1, result.size());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        profile1.getId(), result.get(0).getProfile().getId());
+  }
+
   @Test
   void putVisibilityTypeAsPublicWillIgnoreAccessorList() throws Exception {
     Profile owner = profileRepository.findById(id);
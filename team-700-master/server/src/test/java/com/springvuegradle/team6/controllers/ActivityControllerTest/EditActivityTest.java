@@ -529,6 +529,37 @@ class EditActivityTest {
     org.junit.jupiter.api.Assertions.assertEquals(activityHistorySetBefore.size() + 1, activityHistorySetAfter.size());
   }
 
+  @Test
+  void editActivityHistoryNamesTheChangedFields() throws Exception {
+    String jsonString =
+            "{\n"
+                    + "  \"activity_name\": \"Kaikoura Coast Track race\",\n"
+                    + "  \"description\": \"A new description\",\n"
+                    + "  \"activity_type\":[ \n"
+                    + "    \"Walk\"\n"
+                    + "  ],\n"
+                    + "  \"continuous\": true\n"
+                    + "}";
+
+    mvc.perform(
+            MockMvcRequestBuilders.put(
+                    "/profiles/{profileId}/activities/{activityId}", id, activityId)
+                    .content(jsonString)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .session(session))
+            .andExpect(status().isOk());
+
+    // The times of a continuous activity are cleared by the edit
+    Set<String> messages = new HashSet<>();
+    for (ActivityHistory activityHistory : activityHistoryRepository.findByActivity_id(activityId)) {
+      messages.add(activityHistory.getMessage());
+    }
+    org.junit.jupiter.api.Assertions.assertTrue(
+            messages.contains(
+                    "Activity 'Kaikoura Coast Track race' was updated by Poly Michelle Pocket"
+                            + " (description, start time, end time)"));
+  }
+
   @Test
   void editActivityWithNoChangesReturnStatusOkAndDoesNotCreateNewEntryOfActivityHistory() throws Exception {
     // calls the edit activity endpoint with the same json twice to ensure there is no updates to the activity
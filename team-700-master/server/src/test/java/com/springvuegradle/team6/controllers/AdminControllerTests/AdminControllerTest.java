@@ -271,4 +271,27 @@ class AdminControllerTest {
         org.junit.jupiter.api.Assertions.assertEquals(expectedResult, response);
     }
 
+    @Test
+    @WithMockUser(username = "admin", roles = {"USER", "ADMIN"})
+    void getFeedCacheStatsReturnsCounters() throws Exception {
+        String response =
+            mvc.perform(MockMvcRequestBuilders
+                    .get("/admin/feedcache")
+            ).andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+        JSONObject stats = new JSONObject(response);
+        org.junit.jupiter.api.Assertions.assertTrue(stats.has("hits"));
+        org.junit.jupiter.api.Assertions.assertTrue(stats.has("misses"));
+        org.junit.jupiter.api.Assertions.assertTrue(stats.has("evictions"));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", roles = {"USER", "ADMIN"})
+    void reindexSearchReturnsAccepted() throws Exception {
+        mvc.perform(MockMvcRequestBuilders
+                .post("/admin/search/reindex")
+        ).andExpect(status().isAccepted());
+    }
 }
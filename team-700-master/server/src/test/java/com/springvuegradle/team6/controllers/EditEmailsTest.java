@@ -1,6 +1,7 @@
 package com.springvuegradle.team6.controllers;
 
 import com.springvuegradle.team6.models.ProfileRepository;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -110,4 +111,41 @@ public class EditEmailsTest {
                 .session(session)
         ).andExpect(status().isOk());
     }
+
+    @Test
+    void switchPrimaryEmailIsShownInSearchResults() throws Exception {
+        String jsonString="{\n" +
+                "  \"primary_email\": \"poly@pocket.com\",\n" +
+                "  \"additional_email\": [\n" +
+                "    \"poly1@pocket.com\"\n" +
+                "  ]\n" +
+                "}\n";
+        mvc.perform(MockMvcRequestBuilders
+                .put("/profiles/{profileId}/emails", id)
+                .content(jsonString)
+                .contentType(MediaType.APPLICATION_JSON)
+                .session(session)
+        ).andExpect(status().isOk());
+
+        jsonString="{\n" +
+                "  \"primary_email\": \"poly1@pocket.com\",\n" +
+                "  \"additional_email\": [\n" +
+                "    \"poly@pocket.com\"\n" +
+                "  ]\n" +
+                "}\n";
+        mvc.perform(MockMvcRequestBuilders
+                .put("/profiles/{profileId}/emails", id)
+                .content(jsonString)
+                .contentType(MediaType.APPLICATION_JSON)
+                .session(session)
+        ).andExpect(status().isOk());
+
+        String response = mvc.perform(
+                get("/profiles?fullname=Poly%20Pocket").session(session)
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        JSONObject result = new JSONObject(response).getJSONArray("results").getJSONObject(0);
+        org.junit.jupiter.api.Assertions.assertEquals("poly1@pocket.com", result.getString("primary_email"));
+        org.junit.jupiter.api.Assertions.assertEquals("Michelle", result.getString("middlename"));
+        org.junit.jupiter.api.Assertions.assertEquals(id, result.getInt("profile_id"));
+    }
 }
@@ -1,5 +1,7 @@
 package com.springvuegradle.team6.controllers;
 
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -486,4 +488,34 @@ public class EditProfileTest {
         ).andExpect(status().isBadRequest());
 
     }
+
+    @Test
+    void editNameIsFoundBySearchWithoutReindexing() throws Exception {
+        String jsonString="{\n" +
+                "  \"lastname\": \"Benson\",\n" +
+                "  \"firstname\": \"Maurice\",\n" +
+                "  \"primary_email\": \"poly@pocket.com\",\n" +
+                "  \"date_of_birth\": \"1985-12-20\",\n" +
+                "  \"gender\": \"male\"\n" +
+                "}";
+        mvc.perform(MockMvcRequestBuilders
+                .put("/profiles/{profileId}", id)
+                .content(jsonString)
+                .contentType(MediaType.APPLICATION_JSON)
+                .session(session)
+        ).andExpect(status().isOk());
+
+        String response = mvc.perform(
+                get("/profiles?fullname=Maurice%20Benson").session(session)
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        JSONArray results = new JSONObject(response).getJSONArray("results");
+        org.junit.jupiter.api.Assertions.assertEquals(1, results.length());
+        org.junit.jupiter.api.Assertions.assertEquals(id, results.getJSONObject(0).getInt("profile_id"));
+
+        response = mvc.perform(
+                get("/profiles?fullname=Poly%20Pocket").session(session)
+        ).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        org.junit.jupiter.api.Assertions.assertEquals(
+                0, new JSONObject(response).getJSONArray("results").length());
+    }
 }
@@ -2,6 +2,7 @@ package com.springvuegradle.team6.controllers;
 
 import com.springvuegradle.team6.models.*;
 import com.springvuegradle.team6.requests.LoginRequest;
+import com.springvuegradle.team6.services.HomeFeedCache;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -15,6 +16,7 @@ import org.springframework.mock.web.MockHttpSession;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDateTime;
@@ -22,6 +24,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -40,6 +43,8 @@ public class FeedControllerTest {
 
   @Autowired private SubscriptionHistoryRepository subscriptionHistoryRepository;
 
+  @Autowired private HomeFeedCache homeFeedCache;
+
   private MockHttpSession session;
 
   private Profile profile;
@@ -390,4 +395,405 @@ public class FeedControllerTest {
     JSONArray arr = obj.getJSONArray("feeds");
     org.junit.jupiter.api.Assertions.assertEquals(2, arr.length());
   }
+
+  @Test
+  void testGetHomeFeedWithHistorySavedAfterSubscriptionReturnStatusOkReturnCorrectResults()
+      throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistory = subscriptionHistoryRepository.save(subscriptionHistory);
+
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(LocalDateTime.of(2020, 3, 1, 13, 15));
+    history.setMessage("Activity " + activity.getActivityName() + " was edited");
+    history = activityHistoryRepository.save(history);
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/feed/homefeed/" + profile.getId()).session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject obj = new JSONObject(response);
+    JSONArray arr = obj.getJSONArray("feeds");
+    org.junit.jupiter.api.Assertions.assertEquals(2, arr.length());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Activity Play rock, paper, scissors was edited",
+        arr.getJSONObject(0).getString("message"));
+  }
+
+  @Test
+  void testGetHomeFeedAfterSubscriptionEndedReturnStatusOkReturnCorrectResults() throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(LocalDateTime.of(2020, 3, 3, 13, 15));
+    history.setMessage("Activity " + activity.getActivityName() + " was edited");
+    history = activityHistoryRepository.save(history);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistory = subscriptionHistoryRepository.save(subscriptionHistory);
+
+    subscriptionHistory.setEndDateTime(LocalDateTime.of(2020, 3, 2, 1, 0));
+    subscriptionHistory = subscriptionHistoryRepository.save(subscriptionHistory);
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/feed/homefeed/" + profile.getId()).session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject obj = new JSONObject(response);
+    JSONArray arr = obj.getJSONArray("feeds");
+    org.junit.jupiter.api.Assertions.assertEquals(2, arr.length());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Unsubscribed to the activity: Play rock, paper, scissors.",
+        arr.getJSONObject(0).getString("message"));
+  }
+
+  @Test
+  void testGetHomeFeedWithCursorReturnStatusOkReturnNextPages() throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistory = subscriptionHistoryRepository.save(subscriptionHistory);
+
+    for (int day = 1; day <= 3; day++) {
+      ActivityHistory history = new ActivityHistory();
+      history.setActivity(activity);
+      history.setTimeDate(LocalDateTime.of(2020, 3, day, 13, 15));
+      history.setMessage("Activity " + activity.getActivityName() + " was edited " + day);
+      activityHistoryRepository.save(history);
+    }
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/feed/homefeed/" + profile.getId() + "?limit=3")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject obj = new JSONObject(response);
+    org.junit.jupiter.api.Assertions.assertEquals(3, obj.getJSONArray("feeds").length());
+    String cursor = obj.getString("next_cursor");
+
+    response =
+        mvc.perform(
+                MockMvcRequestBuilders.get(
+                        "/feed/homefeed/" + profile.getId() + "?limit=3&before=" + cursor)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    obj = new JSONObject(response);
+    JSONArray arr = obj.getJSONArray("feeds");
+    org.junit.jupiter.api.Assertions.assertEquals(1, arr.length());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Subscribed to the activity: Play rock, paper, scissors.",
+        arr.getJSONObject(0).getString("message"));
+    org.junit.jupiter.api.Assertions.assertFalse(obj.has("next_cursor"));
+  }
+
+  @Test
+  void testGetHomeFeedWithInvalidCursorReturnStatusBadRequest() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/feed/homefeed/" + profile.getId() + "?before=notacursor")
+                .session(session))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void testStreamHomeFeedReturnStatusOkSendsNewFeeds() throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+
+    MvcResult result =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/feed/homefeed/" + profile.getId() + "/stream")
+                    .session(session))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(LocalDateTime.of(2020, 3, 1, 13, 15));
+    history.setMessage("Activity " + activity.getActivityName() + " was edited");
+    activityHistoryRepository.save(history);
+
+    String response = "";
+    for (int i = 0; i < 50 && !response.contains("was edited"); i++) {
+      Thread.sleep(100);
+      response = result.getResponse().getContentAsString();
+    }
+    org.junit.jupiter.api.Assertions.assertTrue(response.contains("event:feed"));
+    org.junit.jupiter.api.Assertions.assertTrue(
+        response.contains("Activity Play rock, paper, scissors was edited"));
+  }
+
+  @Test
+  void testStreamHomeFeedOfOtherProfileReturnStatusUnauthorized() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/feed/homefeed/" + (profile.getId() + 1) + "/stream")
+                .session(session))
+        .andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void testGetHomeFeedTwiceReturnsCachedFeedUntilHistoryIsSaved() throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+
+    String url = "/feed/homefeed/" + profile.getId();
+    String response =
+        mvc.perform(MockMvcRequestBuilders.get(url).session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(
+        1, new JSONObject(response).getJSONArray("feeds").length());
+
+    long hits = homeFeedCache.getStats().get("hits");
+    String cachedResponse =
+        mvc.perform(MockMvcRequestBuilders.get(url).session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(response, cachedResponse);
+    org.junit.jupiter.api.Assertions.assertEquals(
+        hits + 1, (long) homeFeedCache.getStats().get("hits"));
+
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(LocalDateTime.of(2020, 3, 1, 13, 15));
+    history.setMessage("Activity " + activity.getActivityName() + " was edited");
+    activityHistoryRepository.save(history);
+
+    response =
+        mvc.perform(MockMvcRequestBuilders.get(url).session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(
+        2, new JSONObject(response).getJSONArray("feeds").length());
+  }
+
+  @Test
+  void testHomeFeedCacheDropsPageReadBeforeInvalidation() {
+    long generation = homeFeedCache.generation(profile.getId());
+    homeFeedCache.invalidate(profile.getId());
+    homeFeedCache.put(profile.getId(), "stale", "page", generation);
+    org.junit.jupiter.api.Assertions.assertNull(homeFeedCache.get(profile.getId(), "stale"));
+
+    homeFeedCache.put(
+        profile.getId(), "fresh", "page", homeFeedCache.generation(profile.getId()));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "page", homeFeedCache.get(profile.getId(), "fresh"));
+  }
+
+  @Test
+  void testGetHomeFeedWithMatchingETagReturnNotModifiedUntilFeedChanges() throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+
+    String url = "/feed/homefeed/" + profile.getId();
+    String etag =
+        mvc.perform(MockMvcRequestBuilders.get(url).session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getHeader("ETag");
+    org.junit.jupiter.api.Assertions.assertNotNull(etag);
+
+    mvc.perform(MockMvcRequestBuilders.get(url).header("If-None-Match", etag).session(session))
+        .andExpect(status().isNotModified());
+
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(LocalDateTime.of(2020, 3, 1, 13, 15));
+    history.setMessage("Activity " + activity.getActivityName() + " was edited");
+    activityHistoryRepository.save(history);
+
+    String response =
+        mvc.perform(MockMvcRequestBuilders.get(url).header("If-None-Match", etag).session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(
+        2, new JSONObject(response).getJSONArray("feeds").length());
+  }
+
+  @Test
+  void testGetHomeFeedWithBurstOfUpdatesReturnStatusOkReturnAggregatedFeeds() throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+
+    for (int minute = 15; minute <= 18; minute++) {
+      ActivityHistory history = new ActivityHistory();
+      history.setActivity(activity);
+      history.setTimeDate(LocalDateTime.of(2020, 3, 1, 13, minute));
+      history.setMessage("Activity '" + activity.getActivityName() + "' was updated by Ben");
+      history.setEdit(true);
+      activityHistoryRepository.save(history);
+    }
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(LocalDateTime.of(2020, 3, 2, 13, 15));
+    history.setMessage("Activity '" + activity.getActivityName() + "' was updated by Ben");
+    history.setEdit(true);
+    activityHistoryRepository.save(history);
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/feed/homefeed/" + profile.getId() + "?limit=2&before=")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject obj = new JSONObject(response);
+    JSONArray arr = obj.getJSONArray("feeds");
+    org.junit.jupiter.api.Assertions.assertEquals(2, arr.length());
+    org.junit.jupiter.api.Assertions.assertFalse(arr.getJSONObject(0).has("count"));
+    org.junit.jupiter.api.Assertions.assertEquals(4, arr.getJSONObject(1).getInt("count"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "2020-03-01T13:18", arr.getJSONObject(1).getString("date_time"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "2020-03-01T13:15", arr.getJSONObject(1).getString("first_date_time"));
+    String cursor = obj.getString("next_cursor");
+
+    response =
+        mvc.perform(
+                MockMvcRequestBuilders.get(
+                        "/feed/homefeed/" + profile.getId() + "?limit=2&before=" + cursor)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    obj = new JSONObject(response);
+    arr = obj.getJSONArray("feeds");
+    org.junit.jupiter.api.Assertions.assertEquals(1, arr.length());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Subscribed to the activity: Play rock, paper, scissors.",
+        arr.getJSONObject(0).getString("message"));
+    org.junit.jupiter.api.Assertions.assertFalse(obj.has("next_cursor"));
+  }
+
+  @Test
+  void testGetHomeFeedWithOffsetReturnStatusOkDoesNotAggregateFeeds() throws Exception {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Play rock, paper, scissors");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+
+    for (int minute = 15; minute <= 18; minute++) {
+      ActivityHistory history = new ActivityHistory();
+      history.setActivity(activity);
+      history.setTimeDate(LocalDateTime.of(2020, 3, 1, 13, minute));
+      history.setMessage("Activity '" + activity.getActivityName() + "' was updated by Ben");
+      history.setEdit(true);
+      activityHistoryRepository.save(history);
+    }
+
+    Set<String> dateTimes = new HashSet<>();
+    for (int offset = 0; offset < 4; offset += 2) {
+      String response =
+          mvc.perform(
+                  MockMvcRequestBuilders.get(
+                          "/feed/homefeed/" + profile.getId() + "?offset=" + offset + "&limit=2")
+                      .session(session))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      JSONArray arr = new JSONObject(response).getJSONArray("feeds");
+      org.junit.jupiter.api.Assertions.assertEquals(2, arr.length());
+      for (int i = 0; i < arr.length(); i++) {
+        org.junit.jupiter.api.Assertions.assertFalse(arr.getJSONObject(i).has("count"));
+        dateTimes.add(arr.getJSONObject(i).getString("date_time"));
+      }
+    }
+    org.junit.jupiter.api.Assertions.assertEquals(4, dateTimes.size());
+  }
 }
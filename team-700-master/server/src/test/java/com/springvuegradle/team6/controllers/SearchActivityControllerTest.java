@@ -0,0 +1,269 @@
+package com.springvuegradle.team6.controllers;
+
+import com.springvuegradle.team6.models.*;
+import com.springvuegradle.team6.models.location.NamedLocationRepository;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test"})
+class SearchActivityControllerTest {
+
+  @Autowired private ActivityRepository activityRepository;
+
+  @Autowired private ProfileRepository profileRepository;
+
+  @Autowired private ActivityRoleRepository activityRoleRepository;
+
+  @Autowired private TagRepository tagRepository;
+
+  @Autowired private NamedLocationRepository namedLocationRepository;
+
+  @Autowired private MockMvc mvc;
+
+  private MockHttpSession session;
+
+  private Profile viewer;
+
+  private Profile other;
+
+  @BeforeEach
+  void setup() {
+    viewer = new Profile();
+    viewer.setFirstname("Poly");
+    viewer.setLastname("Pocket");
+    Set<Email> viewerEmails = new HashSet<>();
+    viewerEmails.add(new Email("poly@pocket.com"));
+    viewer.setEmails(viewerEmails);
+    viewer = profileRepository.save(viewer);
+
+    other = new Profile();
+    other.setFirstname("Johnny");
+    other.setLastname("Dong");
+    Set<Email> otherEmails = new HashSet<>();
+    otherEmails.add(new Email("johnny@email.com"));
+    other.setEmails(otherEmails);
+    other = profileRepository.save(other);
+
+    session = new MockHttpSession();
+    session.setAttribute("id", viewer.getId());
+
+    Tag coast = tagRepository.save(new Tag("coast"));
+    Tag race = tagRepository.save(new Tag("race"));
+
+    saveActivity(other, "Kaikoura Coast Track", "public", ActivityType.Walk, coast, 1, false);
+    saveActivity(other, "Mountain bike race", "public", ActivityType.Bike, race, 2, false);
+    saveActivity(other, "Secret coast run", "private", ActivityType.Run, coast, 3, false);
+    saveActivity(other, "Archived coast walk", "public", ActivityType.Walk, coast, 4, true);
+    saveActivity(other, "Restricted coast swim", "restricted", ActivityType.Swim, coast, 5, false);
+
+    Activity member =
+        saveActivity(other, "Club coast run", "restricted", ActivityType.Run, coast, 6, false);
+    ActivityRole role = new ActivityRole();
+    role.setActivity(member);
+    role.setProfile(viewer);
+    role.setActivityRoleType(ActivityRoleType.Participant);
+    activityRoleRepository.save(role);
+
+    saveActivity(viewer, "My own coast ride", "private", ActivityType.Bike, coast, 7, false);
+  }
+
+  private Activity saveActivity(
+      Profile creator,
+      String name,
+      String visibility,
+      ActivityType activityType,
+      Tag tag,
+      int month,
+      boolean archived) {
+    Activity activity = new Activity();
+    activity.setProfile(creator);
+    activity.setActivityName(name);
+    activity.setDescription("An activity for searching");
+    activity.setVisibilityType(visibility);
+    activity.setActivityTypes(new HashSet<>(Arrays.asList(activityType)));
+    activity.setTags(new HashSet<>(Arrays.asList(tag)));
+    activity.setCreationDate(LocalDateTime.of(2020, month, 1, 0, 0));
+    activity.setArchived(archived);
+    return activityRepository.save(activity);
+  }
+
+  @Test
+  void searchActivitiesByNameReturnOnlyVisibleActivities() throws Exception {
+    String response =
+        mvc.perform(get("/activities/search?query=coast").session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject result = new JSONObject(response);
+    JSONArray results = result.getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(3, result.getInt("total"));
+    org.junit.jupiter.api.Assertions.assertEquals(3, results.length());
+    Set<String> names = new HashSet<>();
+    for (int i = 0; i < results.length(); i++) {
+      names.add(results.getJSONObject(i).getString("activity_name"));
+    }
+    org.junit.jupiter.api.Assertions.assertEquals(
+        new HashSet<>(Arrays.asList("Kaikoura Coast Track", "Club coast run", "My own coast ride")),
+        names);
+  }
+
+  @Test
+  void searchActivitiesByHashtagAndTypeReturnMatchingActivities() throws Exception {
+    String response =
+        mvc.perform(
+                get("/activities/search")
+                    .param("hashtag", "#Coast")
+                    .param("types", "run bike")
+                    .param("method", "OR")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject result = new JSONObject(response);
+    JSONArray results = result.getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(2, result.getInt("total"));
+    // Equally relevant matches come newest first
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "My own coast ride", results.getJSONObject(0).getString("activity_name"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Club coast run", results.getJSONObject(1).getString("activity_name"));
+  }
+
+  @Test
+  void searchActivitiesWithCreationDateRangeAndPageReturnPageAndTotal() throws Exception {
+    String response =
+        mvc.perform(
+                get("/activities/search")
+                    .param("from", "2020-01-15T00:00:00")
+                    .param("to", "2020-12-31T00:00:00")
+                    .param("limit", "1")
+                    .param("offset", "1")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject result = new JSONObject(response);
+    JSONArray results = result.getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(3, result.getInt("total"));
+    org.junit.jupiter.api.Assertions.assertEquals(1, results.length());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Club coast run", results.getJSONObject(0).getString("activity_name"));
+  }
+
+  @Test
+  void searchActivitiesWithUnknownActivityTypeReturnBadRequest() throws Exception {
+    mvc.perform(get("/activities/search?types=fly").session(session))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void searchActivitiesWithoutParametersReturnBadRequest() throws Exception {
+    mvc.perform(get("/activities/search").session(session)).andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void searchActivitiesNearbyReturnVisibleActivitiesWithinRadiusNearestFirst() throws Exception {
+    Tag trail = tagRepository.save(new Tag("trail"));
+    Activity near =
+        saveActivity(other, "Port Hills run", "public", ActivityType.Run, trail, 8, false);
+    near.setLocation(
+        namedLocationRepository.findOrSave(
+            "New Zealand", "Canterbury", "Lyttelton", -43.6031, 172.7185));
+    activityRepository.save(near);
+    Activity nearer =
+        saveActivity(other, "Hagley Park walk", "public", ActivityType.Walk, trail, 8, false);
+    nearer.setLocation(
+        namedLocationRepository.findOrSave(
+            "New Zealand", "Canterbury", "Christchurch", -43.5321, 172.6362));
+    activityRepository.save(nearer);
+    Activity hidden =
+        saveActivity(other, "Secret Riccarton run", "private", ActivityType.Run, trail, 8, false);
+    hidden.setLocation(nearer.getLocation());
+    activityRepository.save(hidden);
+    Activity far =
+        saveActivity(other, "Tamaki Drive walk", "public", ActivityType.Walk, trail, 8, false);
+    far.setLocation(
+        namedLocationRepository.findOrSave("New Zealand", "Auckland", "Auckland", -36.8485, 174.7633));
+    activityRepository.save(far);
+
+    String response =
+        mvc.perform(
+                get("/activities/nearby")
+                    .param("latitude", "-43.53")
+                    .param("longitude", "172.63")
+                    .param("radius", "25")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject result = new JSONObject(response);
+    JSONArray results = result.getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(2, result.getInt("total"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Hagley Park walk", results.getJSONObject(0).getString("activity_name"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Port Hills run", results.getJSONObject(1).getString("activity_name"));
+    org.junit.jupiter.api.Assertions.assertTrue(
+        results.getJSONObject(0).getDouble("distance")
+            < results.getJSONObject(1).getDouble("distance"));
+  }
+
+  @Test
+  void searchActivitiesNearbyAfterCoordinatesAddedToLocationReturnActivity() throws Exception {
+    Tag trail = tagRepository.save(new Tag("trail"));
+    Activity activity =
+        saveActivity(other, "Hagley Park walk", "public", ActivityType.Walk, trail, 8, false);
+    activity.setLocation(
+        namedLocationRepository.findOrSave("New Zealand", "Canterbury", "Christchurch", null, null));
+    activityRepository.save(activity);
+
+    namedLocationRepository.findOrSave(
+        "New Zealand", "Canterbury", "Christchurch", -43.5321, 172.6362);
+
+    String response =
+        mvc.perform(
+                get("/activities/nearby")
+                    .param("latitude", "-43.53")
+                    .param("longitude", "172.63")
+                    .param("radius", "25")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject result = new JSONObject(response);
+    org.junit.jupiter.api.Assertions.assertEquals(1, result.getInt("total"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Hagley Park walk",
+        result.getJSONArray("results").getJSONObject(0).getString("activity_name"));
+  }
+}
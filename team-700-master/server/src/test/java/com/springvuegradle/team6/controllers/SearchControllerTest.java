@@ -0,0 +1,130 @@
+package com.springvuegradle.team6.controllers;
+
+import com.springvuegradle.team6.models.*;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(
+    properties = {
+      "ADMIN_EMAIL=test@test.com",
+      "ADMIN_PASSWORD=test",
+      "search.federated.timeout=60000"
+    })
+class SearchControllerTest {
+
+  @Autowired private ActivityRepository activityRepository;
+
+  @Autowired private ProfileRepository profileRepository;
+
+  @Autowired private TagRepository tagRepository;
+
+  @Autowired private MockMvc mvc;
+
+  private MockHttpSession session;
+
+  @BeforeEach
+  void setup() {
+    Profile viewer = new Profile();
+    viewer.setFirstname("Poly");
+    viewer.setLastname("Pocket");
+    Set<Email> viewerEmails = new HashSet<>();
+    Email viewerEmail = new Email("poly@pocket.com");
+    viewerEmail.setPrimary(true);
+    viewerEmails.add(viewerEmail);
+    viewer.setEmails(viewerEmails);
+    viewer = profileRepository.save(viewer);
+
+    Profile kayak = new Profile();
+    kayak.setFirstname("Kayak");
+    kayak.setLastname("Jones");
+    Set<Email> kayakEmails = new HashSet<>();
+    Email kayakEmail = new Email("kayak@jones.com");
+    kayakEmail.setPrimary(true);
+    kayakEmails.add(kayakEmail);
+    kayak.setEmails(kayakEmails);
+    kayak = profileRepository.save(kayak);
+
+    session = new MockHttpSession();
+    session.setAttribute("id", viewer.getId());
+
+    Tag tag = tagRepository.save(new Tag("kayaking"));
+    saveActivity(kayak, "Kayak the Avon", "public", tag);
+    saveActivity(kayak, "Secret kayak trip", "private", tag);
+  }
+
+  private void saveActivity(Profile creator, String name, String visibility, Tag tag) {
+    Activity activity = new Activity();
+    activity.setProfile(creator);
+    activity.setActivityName(name);
+    activity.setDescription("Paddling");
+    activity.setVisibilityType(visibility);
+    activity.setActivityTypes(new HashSet<>(Arrays.asList(ActivityType.Swim)));
+    activity.setTags(new HashSet<>(Arrays.asList(tag)));
+    activityRepository.save(activity);
+  }
+
+  @Test
+  void searchReturnsProfilesActivitiesAndHashtags() throws Exception {
+    String response =
+        mvc.perform(get("/search").param("query", "kayak").session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject result = new JSONObject(response);
+    JSONArray profiles = result.getJSONObject("profiles").getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(1, profiles.length());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Kayak", profiles.getJSONObject(0).getString("firstname"));
+
+    JSONArray activities = result.getJSONObject("activities").getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(1, result.getJSONObject("activities").getInt("total"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Kayak the Avon", activities.getJSONObject(0).getString("activity_name"));
+
+    JSONArray hashtags = result.getJSONObject("hashtags").getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals("kayaking", hashtags.getString(0));
+    org.junit.jupiter.api.Assertions.assertEquals(0, result.getJSONArray("unavailable").length());
+  }
+
+  @Test
+  void searchWithWordsThatAreNotAHashtagSkipsHashtags() throws Exception {
+    String response =
+        mvc.perform(get("/search").param("query", "kayak jones").session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JSONObject result = new JSONObject(response);
+    org.junit.jupiter.api.Assertions.assertFalse(result.has("hashtags"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Kayak",
+        result.getJSONObject("profiles").getJSONArray("results").getJSONObject(0).getString("firstname"));
+  }
+
+  @Test
+  void searchWithoutLoginReturnsUnauthorized() throws Exception {
+    mvc.perform(get("/search").param("query", "kayak")).andExpect(status().isUnauthorized());
+  }
+}
@@ -3,6 +3,7 @@ package com.springvuegradle.team6.controllers;
 import com.springvuegradle.team6.models.Email;
 import com.springvuegradle.team6.models.Profile;
 import com.springvuegradle.team6.models.ProfileRepository;
+import com.springvuegradle.team6.models.location.NamedLocationRepository;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.jupiter.api.BeforeAll;
@@ -19,7 +20,9 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -36,6 +39,8 @@ public class SearchProfileControllerTest {
 
   @Autowired private ProfileRepository profileRepository;
 
+  @Autowired private NamedLocationRepository namedLocationRepository;
+
   @Autowired private MockMvc mvc;
 
   private int id;
@@ -264,6 +269,211 @@ public class SearchProfileControllerTest {
     org.junit.jupiter.api.Assertions.assertEquals(3, arr.length());
   }
 
+  @Test
+  void searchProfileByFullnamePageReturnsTotalMatchingCount() throws Exception {
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles?fullname=Maurice&offset=0&limit=1", id)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JSONObject obj = new JSONObject(response);
+    org.junit.jupiter.api.Assertions.assertEquals(1, obj.getJSONArray("results").length());
+    org.junit.jupiter.api.Assertions.assertEquals(3, obj.getInt("total"));
+
+    response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles/count?fullname=Maurice", id)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals("3", response);
+  }
+
+  @Test
+  void searchProfileByFullnameWithCursorReturnsSamePagesAsOffset() throws Exception {
+    List<Integer> offsetIds = new ArrayList<>();
+    for (int offset = 0; offset < 3; offset++) {
+      String response =
+          mvc.perform(
+                  MockMvcRequestBuilders.get(
+                          "/profiles?fullname=Maurice&offset=" + offset + "&limit=1", id)
+                      .session(session))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      offsetIds.add(new JSONObject(response).getJSONArray("results").getJSONObject(0).getInt("profile_id"));
+    }
+
+    List<Integer> cursorIds = new ArrayList<>();
+    String cursor = "";
+    for (int page = 0; page < 3; page++) {
+      String url = "/profiles?fullname=Maurice&limit=1&after=" + cursor;
+      String response =
+          mvc.perform(MockMvcRequestBuilders.get(url, id).session(session))
+              .andExpect(status().isOk())
+              .andReturn()
+              .getResponse()
+              .getContentAsString();
+      JSONObject obj = new JSONObject(response);
+      org.junit.jupiter.api.Assertions.assertEquals(3, obj.getInt("total"));
+      cursorIds.add(obj.getJSONArray("results").getJSONObject(0).getInt("profile_id"));
+      cursor = obj.getString("next_cursor");
+    }
+    org.junit.jupiter.api.Assertions.assertEquals(offsetIds, cursorIds);
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles?fullname=Maurice&limit=1&after=" + cursor, id)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JSONObject obj = new JSONObject(response);
+    org.junit.jupiter.api.Assertions.assertEquals(0, obj.getJSONArray("results").length());
+    org.junit.jupiter.api.Assertions.assertFalse(obj.has("next_cursor"));
+  }
+
+  @Test
+  void searchProfileByFullnameWithOnlyLimitDoesNotUseCursor() throws Exception {
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles?fullname=Maurice&limit=1", id)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JSONObject obj = new JSONObject(response);
+    org.junit.jupiter.api.Assertions.assertEquals(1, obj.getJSONArray("results").length());
+    org.junit.jupiter.api.Assertions.assertFalse(obj.has("next_cursor"));
+  }
+
+  @Test
+  void searchProfileByFullnameWithInvalidCursorReturnsBadRequest() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/profiles?fullname=Maurice&limit=1&after=notacursor", id)
+                .session(session))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void searchProfilesNearbyReturnsProfilesWithinRadiusNearestFirst() throws Exception {
+    String location =
+        "{\n"
+            + "  \"city\": \"Christchurch\",\n"
+            + "  \"country\": \"New Zealand\",\n"
+            + "  \"latitude\": -43.5321,\n"
+            + "  \"longitude\": 172.6362\n"
+            + "}";
+    mvc.perform(
+            MockMvcRequestBuilders.put("/profiles/" + id + "/location")
+                .content(location)
+                .contentType(MediaType.APPLICATION_JSON)
+                .session(session))
+        .andExpect(status().isOk());
+    Profile duan = null;
+    for (Profile profile : profileRepository.findAll()) {
+      if ("Duany20".equals(profile.getNickname())) {
+        duan = profile;
+      }
+    }
+    duan.setLocation(
+        namedLocationRepository.findOrSave("New Zealand", null, "Auckland", -36.8485, 174.7633));
+    profileRepository.save(duan);
+
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles/nearby")
+                    .param("latitude", "-43.5")
+                    .param("longitude", "172.6")
+                    .param("radius", "50")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JSONObject obj = new JSONObject(response);
+    JSONArray arr = obj.getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(1, obj.getInt("total"));
+    org.junit.jupiter.api.Assertions.assertEquals(id, arr.getJSONObject(0).getInt("profile_id"));
+    org.junit.jupiter.api.Assertions.assertTrue(arr.getJSONObject(0).getDouble("distance") < 10);
+
+    response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles/nearby")
+                    .param("latitude", "-43.5")
+                    .param("longitude", "172.6")
+                    .param("radius", "1000")
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    arr = new JSONObject(response).getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(2, arr.length());
+    org.junit.jupiter.api.Assertions.assertEquals(id, arr.getJSONObject(0).getInt("profile_id"));
+    org.junit.jupiter.api.Assertions.assertEquals(
+        duan.getId(), arr.getJSONObject(1).getInt("profile_id"));
+  }
+
+  @Test
+  void searchProfilesNearbyWithInvalidRadiusReturnsBadRequest() throws Exception {
+    mvc.perform(
+            MockMvcRequestBuilders.get("/profiles/nearby")
+                .param("latitude", "-43.5")
+                .param("longitude", "172.6")
+                .param("radius", "0")
+                .session(session))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void autocompleteProfileNameWithPartialWordsReturnResults() throws Exception {
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles/autocomplete?name=Mau%20Ben", id)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    JSONArray arr = new JSONObject(response).getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(3, arr.length());
+
+    response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles/autocomplete?name=pi&limit=1", id)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    arr = new JSONObject(response).getJSONArray("results");
+    org.junit.jupiter.api.Assertions.assertEquals(1, arr.length());
+    org.junit.jupiter.api.Assertions.assertEquals("Pino", arr.getJSONObject(0).getString("nickname"));
+  }
+
+  @Test
+  void autocompleteProfileNameWithUnknownPrefixReturnNoResults() throws Exception {
+    String response =
+        mvc.perform(
+                MockMvcRequestBuilders.get("/profiles/autocomplete?name=zzq", id)
+                    .session(session))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    org.junit.jupiter.api.Assertions.assertEquals(
+        0, new JSONObject(response).getJSONArray("results").length());
+  }
+
   @Test
   void searchProfileByFullnameReturnNoResults() throws Exception {
     String response =
@@ -472,6 +682,22 @@ public class SearchProfileControllerTest {
     org.junit.jupiter.api.Assertions.assertEquals(1, arr.length());
   }
 
+  @Test
+  void searchProfileByMultipleActivityTypeInAnyOrderAndCase() throws Exception {
+    for (String activity : new String[] {"Run%20Bike", "bike%20RUN"}) {
+      String response =
+              mvc.perform(
+                      MockMvcRequestBuilders.get("/profiles?activity=" + activity + "&method=AND", id)
+                              .session(session))
+                      .andExpect(status().isOk())
+                      .andReturn()
+                      .getResponse()
+                      .getContentAsString();
+      JSONObject obj = new JSONObject(response);
+      org.junit.jupiter.api.Assertions.assertEquals(1, obj.getInt("total"));
+    }
+  }
+
   @Test
   void searchProfileByMultipleActivityNoResults() throws Exception {
     String response =
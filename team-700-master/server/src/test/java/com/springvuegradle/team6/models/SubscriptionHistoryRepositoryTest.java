@@ -9,6 +9,7 @@ import org.springframework.test.context.TestPropertySource;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @SpringBootTest
@@ -22,6 +23,8 @@ class SubscriptionHistoryRepositoryTest {
   private ActivityRepository activityRepository;
   @Autowired
   private ProfileRepository profileRepository;
+  @Autowired
+  private ActivityHistoryRepository activityHistoryRepository;
 
   @Test
   void testSingleSubscriptionFindByProfile() {
@@ -88,4 +91,58 @@ class SubscriptionHistoryRepositoryTest {
                     activityRepository.findByProfile_IdAndArchivedFalse(profile1.getId()).get(0).getId());
     org.junit.jupiter.api.Assertions.assertEquals(1, subscriptionHistories.size());
   }
+
+  @Test
+  void testFindHomeFeedReturnsSubscriptionAndHistoryRowsInOrder() {
+    Set<Email> emails = new HashSet<>();
+    Email email = new Email("johnydoe99@gmail.com");
+    emails.add(email);
+    Profile profile = new Profile();
+    profile.setFirstname("John");
+    profile.setLastname("Doe");
+    profile.setEmails(emails);
+    profile.setDob("2010-01-01");
+    profile.setPassword("Password1");
+    profile.setGender("male");
+    profile = profileRepository.save(profile);
+
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Run at Hagley Park");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(LocalDateTime.of(2020, 3, 1, 13, 15));
+    history.setMessage("Activity Run at Hagley Park was edited");
+    activityHistoryRepository.save(history);
+
+    ActivityHistory history1 = new ActivityHistory();
+    history1.setActivity(activity);
+    history1.setTimeDate(LocalDateTime.of(2020, 3, 5, 13, 15));
+    history1.setMessage("Activity Run at Hagley Park was edited again");
+    activityHistoryRepository.save(history1);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 2, 1, 13, 14));
+    subscriptionHistory.setEndDateTime(LocalDateTime.of(2020, 3, 2, 1, 0));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+
+    List<Object[]> feed = subscriptionHistoryRepository.findHomeFeed(profile.getId());
+    org.junit.jupiter.api.Assertions.assertEquals(3, feed.size());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Unsubscribed to the activity: Run at Hagley Park.", feed.get(0)[1]);
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Activity Run at Hagley Park was edited", feed.get(1)[1]);
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Subscribed to the activity: Run at Hagley Park.", feed.get(2)[1]);
+
+    List<Object[]> page = subscriptionHistoryRepository.findHomeFeed(profile.getId(), 1, 1);
+    org.junit.jupiter.api.Assertions.assertEquals(1, page.size());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        "Activity Run at Hagley Park was edited", page.get(0)[1]);
+  }
 }
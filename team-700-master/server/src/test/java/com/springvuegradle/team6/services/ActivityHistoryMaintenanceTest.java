@@ -0,0 +1,175 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test"})
+class ActivityHistoryMaintenanceTest {
+
+  @Autowired private ActivityHistoryMaintenance activityHistoryMaintenance;
+  @Autowired private ProfileRepository profileRepository;
+  @Autowired private ActivityRepository activityRepository;
+  @Autowired private ActivityHistoryRepository activityHistoryRepository;
+  @Autowired private ArchivedActivityHistoryRepository archivedActivityHistoryRepository;
+  @Autowired private SubscriptionHistoryRepository subscriptionHistoryRepository;
+  @Autowired private FeedEntryRepository feedEntryRepository;
+
+  private Profile profile;
+
+  private Activity activity;
+
+  @BeforeEach
+  void setup() {
+    Set<Email> emails = new HashSet<>();
+    Email email = new Email("johnydoe99@gmail.com");
+    email.setPrimary(true);
+    emails.add(email);
+    profile = new Profile();
+    profile.setFirstname("John");
+    profile.setLastname("Doe");
+    profile.setEmails(emails);
+    profile.setDob("2010-01-01");
+    profile.setPassword("Password1");
+    profile.setGender("male");
+    profile = profileRepository.save(profile);
+
+    activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Run at Hagley Park");
+    activity.setContinuous(true);
+    activity = activityRepository.save(activity);
+
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(profile);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 1, 1, 0, 0));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+  }
+
+  private void saveHistory(String message, LocalDateTime timeDate) {
+    ActivityHistory history = new ActivityHistory();
+    history.setActivity(activity);
+    history.setTimeDate(timeDate);
+    history.setMessage(message);
+    history.setEdit(message.contains("' was updated "));
+    activityHistoryRepository.save(history);
+  }
+
+  @Test
+  void testCompactCollapsesConsecutiveEditsBeforeCutoff() {
+    LocalDateTime start = LocalDateTime.of(2020, 2, 1, 10, 0);
+    for (int i = 0; i < 4; i++) {
+      saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", start.plusMinutes(i));
+    }
+    saveHistory("Activity 'Run at Hagley Park' was archived by John Doe", start.plusMinutes(10));
+    saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", start.plusMinutes(20));
+    saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", start.plusDays(10));
+
+    int removed = activityHistoryMaintenance.compact(start.plusDays(1));
+
+    org.junit.jupiter.api.Assertions.assertEquals(3, removed);
+    List<ActivityHistory> histories =
+        activityHistoryRepository.findHistoryBefore(activity.getId(), start.plusDays(20));
+    org.junit.jupiter.api.Assertions.assertEquals(4, histories.size());
+    org.junit.jupiter.api.Assertions.assertEquals(4, histories.get(0).getEditCount());
+    org.junit.jupiter.api.Assertions.assertTrue(
+        histories.get(0).getMessage().startsWith("Activity 'Run at Hagley Park' was updated 4 times"));
+
+    // 1 subscribe, 1 summary, 1 archive and 2 later edits
+    List<FeedEntry> feed = feedEntryRepository.findFeed(profile.getId());
+    org.junit.jupiter.api.Assertions.assertEquals(5, feed.size());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        histories.get(0).getMessage(), feed.get(3).getMessage());
+  }
+
+  @Test
+  void testCompactKeepsEditsSeenBySubscriptionEndedBeforeLatestEdit() {
+    LocalDateTime start = LocalDateTime.of(2020, 2, 1, 10, 0);
+    Set<Email> emails = new HashSet<>();
+    Email email = new Email("janedoe99@gmail.com");
+    email.setPrimary(true);
+    emails.add(email);
+    Profile other = new Profile();
+    other.setFirstname("Jane");
+    other.setLastname("Doe");
+    other.setEmails(emails);
+    other.setDob("2010-01-01");
+    other.setPassword("Password1");
+    other.setGender("female");
+    other = profileRepository.save(other);
+    SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+    subscriptionHistory.setActivity(activity);
+    subscriptionHistory.setProfile(other);
+    subscriptionHistory.setStartDateTime(LocalDateTime.of(2020, 1, 1, 0, 0));
+    subscriptionHistory.setEndDateTime(start.plusMinutes(5));
+    subscriptionHistoryRepository.save(subscriptionHistory);
+    for (int i = 0; i < 4; i++) {
+      saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", start.plusMinutes(i * 3));
+    }
+
+    activityHistoryMaintenance.compact(start.plusDays(1));
+
+    // 1 subscribe, 1 unsubscribe and the updates it saw, collapsed into the summary
+    List<FeedEntry> feed = feedEntryRepository.findFeed(other.getId());
+    org.junit.jupiter.api.Assertions.assertEquals(3, feed.size());
+    org.junit.jupiter.api.Assertions.assertTrue(
+        feed.get(1).getMessage().startsWith("Activity 'Run at Hagley Park' was updated 4 times"));
+    org.junit.jupiter.api.Assertions.assertEquals(start.plusMinutes(3), feed.get(1).getTimeDate());
+  }
+
+  @Test
+  void testCompactTwiceKeepsEditCount() {
+    LocalDateTime start = LocalDateTime.of(2020, 2, 1, 10, 0);
+    for (int i = 0; i < 3; i++) {
+      saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", start.plusMinutes(i));
+    }
+    activityHistoryMaintenance.compact(start.plusDays(1));
+    for (int i = 0; i < 2; i++) {
+      saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", start.plusDays(2 + i));
+    }
+    activityHistoryMaintenance.compact(start.plusDays(5));
+
+    List<ActivityHistory> histories =
+        activityHistoryRepository.findHistoryBefore(activity.getId(), start.plusDays(20));
+    org.junit.jupiter.api.Assertions.assertEquals(1, histories.size());
+    org.junit.jupiter.api.Assertions.assertEquals(5, histories.get(0).getEditCount());
+  }
+
+  @Test
+  void testExpireMovesOldHistoryToArchive() {
+    saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", LocalDateTime.of(2020, 2, 1, 0, 0));
+    saveHistory("Activity 'Run at Hagley Park' was archived by John Doe", LocalDateTime.of(2020, 2, 2, 0, 0));
+    saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", LocalDateTime.of(2020, 6, 1, 0, 0));
+
+    int removed = activityHistoryMaintenance.expire(LocalDateTime.of(2020, 3, 1, 0, 0), true);
+
+    org.junit.jupiter.api.Assertions.assertEquals(2, removed);
+    org.junit.jupiter.api.Assertions.assertEquals(1, activityHistoryRepository.count());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        2, archivedActivityHistoryRepository.findByActivityIdOrderByTimeDateAsc(activity.getId()).size());
+    // 1 subscribe and the one edit that was kept
+    org.junit.jupiter.api.Assertions.assertEquals(2, feedEntryRepository.findFeed(profile.getId()).size());
+  }
+
+  @Test
+  void testExpireWithoutArchiveDropsOldHistory() {
+    saveHistory("Activity 'Run at Hagley Park' was updated by John Doe", LocalDateTime.of(2020, 2, 1, 0, 0));
+
+    activityHistoryMaintenance.expire(LocalDateTime.of(2020, 3, 1, 0, 0), false);
+
+    org.junit.jupiter.api.Assertions.assertEquals(0, activityHistoryRepository.count());
+    org.junit.jupiter.api.Assertions.assertEquals(0, archivedActivityHistoryRepository.count());
+  }
+}
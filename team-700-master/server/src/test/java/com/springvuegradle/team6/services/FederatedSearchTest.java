@@ -0,0 +1,56 @@
+package com.springvuegradle.team6.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(
+    properties = {
+      "ADMIN_EMAIL=test@test.com",
+      "ADMIN_PASSWORD=test",
+      "search.federated.timeout=60000",
+      "search.federated.timeout.slow=500"
+    })
+class FederatedSearchTest {
+
+  @Autowired private FederatedSearch federatedSearch;
+
+  @Test
+  void slowAndFailingSourcesAreLeftOutOfTheResults() {
+    Map<String, Supplier<Object>> sources = new LinkedHashMap<>();
+    sources.put("fast", () -> "found");
+    sources.put(
+        "slow",
+        () -> {
+          try {
+            Thread.sleep(10000);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          return "too late";
+        });
+    sources.put(
+        "failing",
+        () -> {
+          throw new IllegalStateException("source is down");
+        });
+
+    long start = System.currentTimeMillis();
+    FederatedSearchResult result = federatedSearch.search(sources);
+
+    org.junit.jupiter.api.Assertions.assertTrue(System.currentTimeMillis() - start < 5000);
+    org.junit.jupiter.api.Assertions.assertEquals("found", result.getResults().get("fast"));
+    org.junit.jupiter.api.Assertions.assertEquals(1, result.getResults().size());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        Arrays.asList("slow", "failing"), result.getUnavailable());
+  }
+}
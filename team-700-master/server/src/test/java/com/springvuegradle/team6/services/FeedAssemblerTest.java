@@ -0,0 +1,161 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.*;
+import com.springvuegradle.team6.responses.FeedResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test"})
+class FeedAssemblerTest {
+
+  @Autowired private FeedAssembler feedAssembler;
+  @Autowired private ProfileRepository profileRepository;
+  @Autowired private ActivityRepository activityRepository;
+  @Autowired private ActivityHistoryRepository activityHistoryRepository;
+  @Autowired private SubscriptionHistoryRepository subscriptionHistoryRepository;
+
+  private Profile profile;
+
+  @BeforeEach
+  void setup() {
+    Set<Email> emails = new HashSet<>();
+    Email email = new Email("johnydoe99@gmail.com");
+    email.setPrimary(true);
+    emails.add(email);
+    profile = new Profile();
+    profile.setFirstname("John");
+    profile.setLastname("Doe");
+    profile.setEmails(emails);
+    profile.setDob("2010-01-01");
+    profile.setPassword("Password1");
+    profile.setGender("male");
+    profile = profileRepository.save(profile);
+
+    LocalDateTime start = LocalDateTime.of(2020, 1, 1, 0, 0);
+    for (int i = 0; i < 3; i++) {
+      Activity activity = new Activity();
+      activity.setProfile(profile);
+      activity.setActivityName("Activity " + i);
+      activity.setContinuous(true);
+      activity = activityRepository.save(activity);
+
+      for (int j = 0; j < 5; j++) {
+        ActivityHistory history = new ActivityHistory();
+        history.setActivity(activity);
+        history.setTimeDate(start.plusDays(j + 1).plusHours(i));
+        history.setMessage("Activity " + i + " update " + j);
+        activityHistoryRepository.save(history);
+      }
+
+      SubscriptionHistory subscriptionHistory = new SubscriptionHistory();
+      subscriptionHistory.setActivity(activity);
+      subscriptionHistory.setProfile(profile);
+      subscriptionHistory.setStartDateTime(start.plusMinutes(i));
+      if (i == 0) {
+        subscriptionHistory.setEndDateTime(start.plusDays(3));
+      }
+      subscriptionHistoryRepository.save(subscriptionHistory);
+    }
+  }
+
+  @Test
+  void testAssembleFeedPagesMatchQueryFeed() {
+    for (int offset = 0; offset < 16; offset += 4) {
+      List<FeedResponse> assembled = feedAssembler.assembleFeed(profile.getId(), offset, 4);
+      List<FeedResponse> queried = feedAssembler.queryFeed(profile.getId(), offset, 4);
+      org.junit.jupiter.api.Assertions.assertEquals(queried.size(), assembled.size());
+      for (int i = 0; i < assembled.size(); i++) {
+        org.junit.jupiter.api.Assertions.assertEquals(
+            queried.get(i).dateTime, assembled.get(i).dateTime);
+        org.junit.jupiter.api.Assertions.assertEquals(
+            queried.get(i).message, assembled.get(i).message);
+      }
+    }
+  }
+
+  @Test
+  void testQueryFeedPagesDoNotRepeatFeedsAtTheSameTime() {
+    // Activity 0 was unsubscribed from, the others are still followed
+    Activity activity = null;
+    for (Activity candidate : activityRepository.findByProfile_IdAndArchivedFalse(profile.getId())) {
+      if (candidate.getActivityName().equals("Activity 2")) {
+        activity = candidate;
+      }
+    }
+    for (int i = 0; i < 4; i++) {
+      ActivityHistory history = new ActivityHistory();
+      history.setActivity(activity);
+      history.setTimeDate(LocalDateTime.of(2020, 2, 1, 0, 0));
+      history.setMessage("Simultaneous update " + i);
+      activityHistoryRepository.save(history);
+    }
+
+    Set<String> messages = new HashSet<>();
+    for (int offset = 0; offset < 4; offset++) {
+      messages.add(feedAssembler.queryFeed(profile.getId(), offset, 1).get(0).message);
+    }
+    org.junit.jupiter.api.Assertions.assertEquals(4, messages.size());
+  }
+
+  @Test
+  void testAssembleFeedPagesMatchQueryFeedForFeedsAtTheSameTime() {
+    for (Activity activity : activityRepository.findByProfile_IdAndArchivedFalse(profile.getId())) {
+      for (int i = 0; i < 2; i++) {
+        ActivityHistory history = new ActivityHistory();
+        history.setActivity(activity);
+        history.setTimeDate(LocalDateTime.of(2020, 2, 1, 0, 0));
+        history.setMessage(activity.getActivityName() + " simultaneous update " + i);
+        activityHistoryRepository.save(history);
+      }
+    }
+
+    for (int offset = 0; offset < 4; offset++) {
+      org.junit.jupiter.api.Assertions.assertEquals(
+          feedAssembler.queryFeed(profile.getId(), offset, 1).get(0).message,
+          feedAssembler.assembleFeed(profile.getId(), offset, 1).get(0).message);
+    }
+  }
+
+  @Test
+  void testAssembleFeedWithoutLimitReturnsWholeFeed() {
+    List<FeedResponse> assembled = feedAssembler.assembleFeed(profile.getId(), 5, null);
+    // 3 subscribe, 1 unsubscribe and 2 + 5 + 5 updates made while subscribed
+    org.junit.jupiter.api.Assertions.assertEquals(16, assembled.size());
+    for (int i = 1; i < assembled.size(); i++) {
+      org.junit.jupiter.api.Assertions.assertTrue(
+          assembled.get(i - 1).dateTime.compareTo(assembled.get(i).dateTime) >= 0);
+    }
+  }
+
+  @Test
+  void testMergeFeedsStopsAtOffsetPlusLimit() {
+    List<List<FeedResponse>> streams = new ArrayList<>();
+    streams.add(
+        Arrays.asList(
+            new FeedResponse(1, "a3", "2020-01-03T00:00"),
+            new FeedResponse(1, "a1", "2020-01-01T00:00")));
+    streams.add(
+        Arrays.asList(
+            new FeedResponse(2, "b4", "2020-01-04T00:00"),
+            new FeedResponse(2, "b2", "2020-01-02T00:00")));
+    streams.add(new ArrayList<>());
+
+    List<FeedResponse> page = FeedAssembler.mergeFeeds(streams, 1, 2);
+    org.junit.jupiter.api.Assertions.assertEquals(2, page.size());
+    org.junit.jupiter.api.Assertions.assertEquals("a3", page.get(0).message);
+    org.junit.jupiter.api.Assertions.assertEquals("b2", page.get(1).message);
+  }
+}
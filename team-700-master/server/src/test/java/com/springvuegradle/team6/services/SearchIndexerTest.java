@@ -0,0 +1,131 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test"})
+class SearchIndexerTest {
+
+  @Autowired private SearchIndexer searchIndexer;
+  @Autowired private ProfileRepository profileRepository;
+  @Autowired private ActivityRepository activityRepository;
+  @Autowired private JdbcTemplate jdbcTemplate;
+  @Autowired private TransactionTemplate transactionTemplate;
+
+  private Profile profile;
+
+  @BeforeEach
+  void setup() {
+    Set<Email> emails = new HashSet<>();
+    Email email = new Email("johnydoe99@gmail.com");
+    email.setPrimary(true);
+    emails.add(email);
+    profile = new Profile();
+    profile.setFirstname("John");
+    profile.setLastname("Doe");
+    profile.setNickname("Johnny");
+    profile.setEmails(emails);
+    profile.setDob("2010-01-01");
+    profile.setPassword("Password1");
+    profile.setGender("male");
+    profile = profileRepository.save(profile);
+  }
+
+  @Test
+  void catchUpIndexesRowsModifiedSinceCheckpoint() {
+    LocalDateTime checkpoint = searchIndexer.databaseTime();
+    // Written while the application was down, so the index did not see it
+    jdbcTemplate.update("update profile set nickname = 'Jonno' where id = ?", profile.getId());
+    org.junit.jupiter.api.Assertions.assertEquals(0, searchNickname("Jonno"));
+
+    searchIndexer.catchUp(checkpoint);
+
+    org.junit.jupiter.api.Assertions.assertEquals(1, searchNickname("Jonno"));
+    org.junit.jupiter.api.Assertions.assertEquals(0, searchNickname("Johnny"));
+  }
+
+  @Test
+  void catchUpPurgesRowsDeletedSinceCheckpoint() {
+    Activity activity = new Activity();
+    activity.setProfile(profile);
+    activity.setActivityName("Run at Hagley Park");
+    activity.setVisibilityType("public");
+    activity = activityRepository.save(activity);
+
+    LocalDateTime checkpoint = searchIndexer.databaseTime();
+    jdbcTemplate.update("delete from activity where id = ?", activity.getId());
+    org.junit.jupiter.api.Assertions.assertEquals(1, searchHagley());
+
+    searchIndexer.catchUp(checkpoint);
+
+    org.junit.jupiter.api.Assertions.assertEquals(0, searchHagley());
+  }
+
+  @Test
+  void changingActivityTypesMarksProfileModified() throws Exception {
+    Thread.sleep(50);
+    LocalDateTime checkpoint = searchIndexer.databaseTime();
+    org.junit.jupiter.api.Assertions.assertEquals(0, countModifiedSince(checkpoint));
+
+    profile.setActivityTypes(new HashSet<>(Collections.singletonList(ActivityType.Hike)));
+    profileRepository.save(profile);
+
+    org.junit.jupiter.api.Assertions.assertEquals(1, countModifiedSince(checkpoint));
+  }
+
+  @Test
+  void startCatchUpRunsInBackground() throws Exception {
+    waitUntilNotRunning();
+    LocalDateTime checkpoint = searchIndexer.databaseTime();
+    jdbcTemplate.update("update profile set nickname = 'Jonno' where id = ?", profile.getId());
+
+    org.junit.jupiter.api.Assertions.assertTrue(searchIndexer.startCatchUp(checkpoint));
+    waitUntilNotRunning();
+
+    org.junit.jupiter.api.Assertions.assertTrue(searchIndexer.isComplete());
+    org.junit.jupiter.api.Assertions.assertEquals(1, searchNickname("Jonno"));
+  }
+
+  private int countModifiedSince(LocalDateTime since) {
+    return jdbcTemplate.queryForObject(
+        "select count(*) from profile where id = ? and last_modified >= ?",
+        Integer.class,
+        profile.getId(),
+        since);
+  }
+
+  private void waitUntilNotRunning() throws InterruptedException {
+    for (int i = 0; i < 100 && searchIndexer.isRunning(); i++) {
+      Thread.sleep(100);
+    }
+  }
+
+  private int searchNickname(String nickname) {
+    return transactionTemplate.execute(
+        status -> profileRepository.searchNicknamePage(nickname, null, null, -1, -1).getTotal());
+  }
+
+  private int searchHagley() {
+    return transactionTemplate.execute(
+        status ->
+            activityRepository
+                .searchActivities(
+                    "hagley", null, null, null, null, null, profile.getId(), new ArrayList<>(), 10, 0)
+                .getTotal());
+  }
+}
@@ -0,0 +1,83 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.Tag;
+import com.springvuegradle.team6.models.TagRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(
+    properties = {"ADMIN_EMAIL=test@test.com", "ADMIN_PASSWORD=test", "tags.dictionary.size=2"})
+class TagDictionaryTest {
+
+  @Autowired private TagDictionary tagDictionary;
+  @Autowired private TagResolver tagResolver;
+  @Autowired private TagRepository tagRepository;
+
+  @Test
+  void resolvedTagsAreServedFromMemory() {
+    Tag running =
+        tagResolver.resolve(Collections.singletonList(new Tag("running"))).iterator().next();
+
+    Set<Tag> again = tagResolver.resolve(Collections.singletonList(new Tag("running")));
+
+    org.junit.jupiter.api.Assertions.assertSame(running, again.iterator().next());
+    org.junit.jupiter.api.Assertions.assertEquals(1, tagRepository.count());
+  }
+
+  @Test
+  void warmLoadsStoredTagsUpToTheSize() {
+    tagRepository.saveAll(Arrays.asList(new Tag("running"), new Tag("hills"), new Tag("dawn")));
+
+    tagDictionary.warm();
+
+    Map<String, Tag> found = tagDictionary.getAll(Arrays.asList("running", "hills", "dawn"));
+    org.junit.jupiter.api.Assertions.assertEquals(2, found.size());
+  }
+
+  @Test
+  void evictedTagsAreReadAgain() {
+    Tag running =
+        tagResolver.resolve(Collections.singletonList(new Tag("running"))).iterator().next();
+
+    tagDictionary.evict(running);
+
+    org.junit.jupiter.api.Assertions.assertTrue(
+        tagDictionary.getAll(Collections.singletonList("running")).isEmpty());
+    org.junit.jupiter.api.Assertions.assertNotSame(
+        running,
+        tagResolver.resolve(Collections.singletonList(new Tag("running"))).iterator().next());
+  }
+
+  @Test
+  void concurrentResolvesStoreTagOnce() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Set<Tag>>> resolved = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      resolved.add(
+          executor.submit(
+              () -> tagResolver.resolve(Collections.singletonList(new Tag("sprint")))));
+    }
+    for (Future<Set<Tag>> tags : resolved) {
+      org.junit.jupiter.api.Assertions.assertEquals(
+          "sprint", tags.get().iterator().next().getName());
+    }
+    executor.shutdown();
+
+    org.junit.jupiter.api.Assertions.assertEquals(1, tagRepository.count());
+  }
+}
@@ -0,0 +1,71 @@
+package com.springvuegradle.team6.services;
+
+import com.springvuegradle.team6.models.Tag;
+import com.springvuegradle.team6.models.TagRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(
+    properties = {
+      "ADMIN_EMAIL=test@test.com",
+      "ADMIN_PASSWORD=test",
+      "spring.jpa.properties.hibernate.jdbc.batch_size=50"
+    })
+class TagResolverTest {
+
+  @Autowired private TagResolver tagResolver;
+  @Autowired private TagRepository tagRepository;
+
+  @Test
+  void resolveFindsExistingTagsAndStoresMissingOnes() {
+    tagRepository.save(new Tag("running"));
+
+    Set<Tag> tags =
+        tagResolver.resolve(
+            Arrays.asList(new Tag("running"), new Tag("hills"), new Tag("hills"), new Tag("dawn")));
+
+    Set<String> names = new HashSet<>();
+    for (Tag tag : tags) {
+      names.add(tag.getName());
+    }
+    org.junit.jupiter.api.Assertions.assertEquals(3, tags.size());
+    org.junit.jupiter.api.Assertions.assertEquals(
+        new HashSet<>(Arrays.asList("running", "hills", "dawn")), names);
+    org.junit.jupiter.api.Assertions.assertEquals(3, tagRepository.count());
+  }
+
+  @Test
+  void concurrentRequestsStoreEachNewTagOnce() throws Exception {
+    List<Tag> hashtags = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      hashtags.add(new Tag("tag" + i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<Set<Tag>>> results = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      results.add(
+          executor.submit(
+              () -> {
+                start.await();
+                return tagResolver.resolve(hashtags);
+              }));
+    }
+    start.countDown();
+    for (Future<Set<Tag>> result : results) {
+      org.junit.jupiter.api.Assertions.assertEquals(30, result.get(30, TimeUnit.SECONDS).size());
+    }
+    executor.shutdown();
+
+    org.junit.jupiter.api.Assertions.assertEquals(30, tagRepository.count());
+  }
+}